@@ -34,6 +34,17 @@ abstract public class AnalyzerModule
 	return dataPool.add(dataList);
     }
 
+    /**
+     * Removes the specified data list from the data pool of the module.
+     * 
+     * @param  dataList the data list
+     * @return true if the specified data list was in the data pool
+     */
+    public boolean remove (DataList dataList)
+    {
+	return dataPool.remove(dataList);
+    }
+
     /**
      * Returns the number of data lists in the pool of the module.
      *
@@ -1,5 +1,7 @@
 package es.uvigo.det.netlab.predictor;
 
+import java.util.Arrays;
+
 /**
  * This class extends the PredictorModule class to implement a predictor using an ARMA model of first order.
  *
@@ -27,6 +29,26 @@ public class ArmaPredictorModule extends PredictorModule
      * The moving average order
      */
     private int maOrder;
+
+    /**
+     * The one-step-ahead predictions of the current data values (streaming mode)
+     */
+    private double[] stepPredictions;
+
+    /**
+     * The number of current data values with a computed one-step-ahead prediction
+     */
+    private int numStepPredictions;
+
+    /**
+     * The predictions following the last sample (reused by predict)
+     */
+    private double[] futurePredictions;
+
+    /**
+     * The predictions of every index up to the last horizon (reused by predictHorizons)
+     */
+    private double[] prediction;
     
     /**
      * Creates a new ARMA predictor module.
@@ -43,32 +65,140 @@ public class ArmaPredictorModule extends PredictorModule
 	arOrder = ar.length;
 	this.ma = ma;
 	maOrder = ma.length;
+	stepPredictions = new double[0];
+	futurePredictions = new double[0];
+	prediction = new double[0];
+    }
+
+    /**
+     * Computes the one-step-ahead prediction (and hence the residual) of the new sample.
+     *
+     * @param index the index of the new sample in the current data
+     */
+    protected void update (int index)
+    {
+	int size = currentData.size();
+	if (stepPredictions.length < size) {
+	    stepPredictions = Arrays.copyOf(stepPredictions, Math.max(size, 2 * stepPredictions.length));
+	}
+	// Residuals are only used if the first moving average coefficient is not null
+	for (int i = numStepPredictions; i < size && ma[0] != 0; i++) {
+	    stepPredictions[i] = 0;
+	    if (i < arOrder + 1) {
+		continue;
+	    }
+	    for (int p = 1; p <= arOrder; p++) {
+		stepPredictions[i] += ar[p - 1] * currentData.getValue(i - p);
+	    }
+	    for (int q = 1; q <= maOrder; q++) {
+		double maValue = i < q || stepPredictions[i - q] == 0 ? 0.0 : currentData.getValue(i - q) - stepPredictions[i - q];
+		stepPredictions[i] -= ma[q - 1] * maValue;
+	    }
+	}
+	numStepPredictions = size;
+    }
+
+    /**
+     * Computes the predictions for the timeslots following the last sample using the stored residuals,
+     * so that the cost does not depend on the number of samples.
+     *
+     * @param  stepTimeslot the timeslot step
+     * @param  predictions  the array where the predictions for the next predictions.length steps are stored
+     * @throws IllegalArgumentException if the timeslot step is not a multiple of the sample spacing
+     */
+    public void predict (int stepTimeslot, double[] predictions)
+    {
+	int initIndex = currentData.size() - 1;
+	update(initIndex);
+	int slotsPerStep = samplesPerStep(stepTimeslot);
+	int numSteps = predictions.length * slotsPerStep;
+	if (futurePredictions.length < numSteps + 1) {
+	    futurePredictions = new double[numSteps + 1];
+	}
+	int firstIndex = ma[0] == 0 ? initIndex + 1 : arOrder + 1;
+	for (int k = 1; k <= numSteps; k++) {
+	    int i = initIndex + k;
+	    futurePredictions[k] = 0;
+	    if (i >= firstIndex) {
+		for (int p = 1; p <= arOrder; p++) {
+		    double arValue = k > p ? futurePredictions[k - p] : currentData.getValue(i - p);
+		    futurePredictions[k] += ar[p - 1] * arValue;
+		}
+		for (int q = 1; q <= maOrder; q++) {
+		    double maValue = k > q || stepPredictions[i - q] == 0 ? 0.0 : currentData.getValue(i - q) - stepPredictions[i - q];
+		    futurePredictions[k] -= ma[q - 1] * maValue;
+		}
+	    }
+	    if (k % slotsPerStep == 0) {
+		predictions[k / slotsPerStep - 1] = futurePredictions[k];
+	    }
+	}
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Computes the predictions for every timeslot from the initial timeslot (excluded) to the final one in a
+     * single forward recursion up to the last horizon.
      *
-     * @param  initEntry the initial data entry
-     * @param  pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initialTimeslot the initial timeslot
+     * @param finalTimeslot   the final timeslot
+     * @param stepTimeslot    the timeslot step
+     * @param predictions     the array where the predictions are stored (one per step)
+     * @return the number of predictions stored in the array
+     */
+    public int predictHorizons (int initialTimeslot, int finalTimeslot, int stepTimeslot, double[] predictions)
+    {
+	int numPredictions = Math.max((finalTimeslot - initialTimeslot) / stepTimeslot, 0);
+	if (numPredictions == 0) {
+	    return 0;
+	}
+	int initIndex = currentData.getIndexByTimeslot(initialTimeslot);
+	computePredictions(initIndex, currentData.getIndexByTimeslot(initialTimeslot + numPredictions * stepTimeslot));
+	for (int h = 0; h < numPredictions; h++) {
+	    predictions[h] = prediction[currentData.getIndexByTimeslot(initialTimeslot + (h + 1) * stepTimeslot)];
+	}
+	return numPredictions;
+    }
+
+    /**
+     * Computes the predictions of every index up to the last one (included) for the given initial index.
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    private void computePredictions (int initIndex, int lastIndex)
     {
-	int initIndex = currentData.getIndexByTimeslot(initEntry.getTimeslot());
-	int pastIndex = currentData.getIndexByTimeslot(pastEntry.getTimeslot());
-	double[] prediction = new double[pastIndex + 1];
+	if (prediction.length < lastIndex + 1) {
+	    prediction = new double[Math.max(lastIndex + 1, 2 * prediction.length)];
+	}
 	int firstIndex = ma[0] == 0 ? initIndex + 1 : arOrder + 1;
-	for (int i = firstIndex; i <= pastIndex; i++) {
+	// Values read before the first computed index must be null
+	int firstNullIndex = Math.max(Math.min(firstIndex - Math.max(arOrder, maOrder), initIndex), 0);
+	for (int i = firstNullIndex; i < firstIndex && i <= lastIndex; i++) {
+	    prediction[i] = 0;
+	}
+	for (int i = firstIndex; i <= lastIndex; i++) {
 	    prediction[i] = 0;
 	    for (int p = 1; p <= arOrder; p++) {
-		double arValue = i > initIndex + p ? prediction[i - p] : currentData.getEntryByIndex(i - p).getValue();
+		double arValue = i > initIndex + p ? prediction[i - p] : currentData.getValue(i - p);
 		prediction[i] += ar[p - 1] * arValue;
 	    }
 	    for (int q = 1; q <= maOrder; q++) {
-		double maValue = i > initIndex + q || prediction[i - q] == 0 ? 0.0 : currentData.getEntryByIndex(i - q).getValue() - prediction[i - q];
+		double maValue = i > initIndex + q || prediction[i - q] == 0 ? 0.0 : currentData.getValue(i - q) - prediction[i - q];
 		prediction[i] -= ma[q - 1] * maValue;
 	    }
 	}
+    }
+    
+    /**
+     * Returns the data value predicted for the specified past timeslot.
+     *
+     * @param  initTimeslot the initial timeslot
+     * @param  initValue    the data value at the initial timeslot
+     * @param  pastTimeslot the past timeslot
+     * @param  pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
+     */
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
+    {
+	int pastIndex = currentData.getIndexByTimeslot(pastTimeslot);
+	computePredictions(currentData.getIndexByTimeslot(initTimeslot), pastIndex);
 	return prediction[pastIndex];
     } 
 }
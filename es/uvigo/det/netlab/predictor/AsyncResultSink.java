@@ -0,0 +1,211 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+/**
+ * This class implements a result sink that hands the results over to another sink running on a background
+ * thread through a bounded queue, so that formatting and I/O do not block the simulation (producers only
+ * block when the queue is full).
+ *
+ * The results are written in the same order they are received. The first error of the underlying sink is
+ * reported by flush and close.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class AsyncResultSink implements ResultSink
+{
+    /**
+     * The default capacity of the queue
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The event that stops the background thread
+     */
+    private static final Consumer<ResultSink> STOP = sink -> {};
+
+    /**
+     * The underlying sink
+     */
+    private final ResultSink sink;
+
+    /**
+     * The queue of pending results
+     */
+    private final BlockingQueue<Consumer<ResultSink>> queue;
+
+    /**
+     * The background thread
+     */
+    private final Thread writer;
+
+    /**
+     * The first error of the underlying sink
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * The lock that makes queuing a result and closing the sink mutually exclusive
+     */
+    private final Object lock = new Object();
+
+    /**
+     * No more results are accepted if true (guarded by lock)
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new asynchronous result sink.
+     *
+     * @param sink     the underlying sink
+     * @param capacity the capacity of the queue
+     */
+    public AsyncResultSink (ResultSink sink, int capacity)
+    {
+	this.sink = sink;
+	queue = new ArrayBlockingQueue<Consumer<ResultSink>>(capacity);
+	writer = new Thread(this::write, "result-writer");
+	writer.setDaemon(true);
+	writer.start();
+    }
+
+    /**
+     * Creates a new asynchronous result sink with a queue of the default capacity.
+     *
+     * @param sink the underlying sink
+     */
+    public AsyncResultSink (ResultSink sink)
+    {
+	this(sink, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Writes the queued results until the sink is closed (background thread).
+     */
+    private void write ()
+    {
+	while (true) {
+	    Consumer<ResultSink> event;
+	    try {
+		event = queue.take();
+	    } catch (InterruptedException e) {
+		return;
+	    }
+	    if (event == STOP) {
+		return;
+	    }
+	    try {
+		event.accept(sink);
+	    } catch (RuntimeException e) {
+		if (failure == null) {
+		    failure = e;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Queues the given event, waiting if the queue is full. The lock is held while waiting, so that no event
+     * can be queued after the one that stops the background thread (which does not need the lock to drain the
+     * queue).
+     */
+    private void put (Consumer<ResultSink> event)
+    {
+	synchronized (lock) {
+	    if (closed) {
+		throw new IllegalStateException("result sink closed");
+	    }
+	    try {
+		queue.put(event);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new IllegalStateException("interrupted while writing results");
+	    }
+	}
+    }
+
+    public void message (String text)
+    {
+	put(target -> target.message(text));
+    }
+
+    public void dataList (String label, int numEntries, double energyHarvested)
+    {
+	put(target -> target.dataList(label, numEntries, energyHarvested));
+    }
+
+    public void dataEntry (int timeslot, double value, double weight)
+    {
+	put(target -> target.dataEntry(timeslot, value, weight));
+    }
+
+    public void endDataList ()
+    {
+	put(target -> target.endDataList());
+    }
+
+    public void solarTimeslots (int sunrise, int sunset, int noon)
+    {
+	put(target -> target.solarTimeslots(sunrise, sunset, noon));
+    }
+
+    public void prediction (int horizon, int timeslot, double actual, double predicted, double absError, double perError)
+    {
+	put(target -> target.prediction(horizon, timeslot, actual, predicted, absError, perError));
+    }
+
+    public void errorMetrics (String challenge, ErrorMetrics metrics)
+    {
+	put(target -> target.errorMetrics(challenge, metrics));
+    }
+
+    /**
+     * Waits until every queued result has been written and flushed.
+     */
+    public void flush ()
+    {
+	CountDownLatch flushed = new CountDownLatch(1);
+	put(target -> {
+		try {
+		    target.flush();
+		} finally {
+		    flushed.countDown();
+		}
+	    });
+	try {
+	    flushed.await();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	if (failure != null) {
+	    throw failure;
+	}
+    }
+
+    /**
+     * Waits until every queued result has been written and closes the underlying sink.
+     */
+    public void close ()
+    {
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    put(STOP);
+	    closed = true;
+	}
+	try {
+	    writer.join();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	sink.close();
+	if (failure != null) {
+	    throw failure;
+	}
+    }
+}
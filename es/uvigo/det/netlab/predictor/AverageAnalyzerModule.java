@@ -17,6 +17,36 @@ public class AverageAnalyzerModule extends AnalyzerModule
      * The data list with the beta weighting factors for UD-WCMA predictions
      */
     private DataList betaFactorList;
+
+    /**
+     * The sum of the values of the pool lists at every index (null if it must be computed again)
+     */
+    private double[] sumValues;
+
+    /**
+     * The sum of the differences between the values of the pool lists and the ones of the first pool list at
+     * every index, and the sum of their squares (differences keep the deviation accurate when it is small)
+     */
+    private double[] sumDiffs;
+    private double[] sumSquaredDiffs;
+
+    /**
+     * The average data list of the pool (null if it must be computed again)
+     */
+    private DataList averageList;
+
+    /**
+     * The deviation of the pool lists from the average at every index (null if it must be computed again)
+     */
+    private double[] deviations;
+
+    /**
+     * The data list, initial timeslot and window of the last call to mostSimilarList (the weighting factors
+     * are only computed when they are requested)
+     */
+    private DataList factorDataList;
+    private int factorInitSlot;
+    private int factorSlotWindow;
     
     /**
      * Creates a new average analyzer module.
@@ -26,6 +56,68 @@ public class AverageAnalyzerModule extends AnalyzerModule
 	super();
     }
 
+    /**
+     * Adds the specified data list to the data pool of the module, updating the sums of the pool values.
+     * 
+     * @param  dataList the data list
+     * @return true if the specified data list was successfully added to the data pool
+     */
+    public boolean add (DataList dataList)
+    {
+	if (sumValues != null && dataList.size() >= sumValues.length) {
+	    updateSums(dataList, 1);
+	} else {
+	    sumValues = null;
+	}
+	averageList = null;
+	deviations = null;
+	return super.add(dataList);
+    }
+
+    /**
+     * Removes the specified data list from the data pool of the module, updating the sums of the pool values
+     * (they are computed again if the first pool list is removed).
+     * 
+     * @param  dataList the data list
+     * @return true if the specified data list was in the data pool
+     */
+    public boolean remove (DataList dataList)
+    {
+	int poolIndex = dataPool.indexOf(dataList);
+	if (poolIndex < 0) {
+	    return false;
+	}
+	if (sumValues != null && poolIndex > 0) {
+	    updateSums(dataList, -1);
+	} else {
+	    sumValues = null;
+	}
+	averageList = null;
+	deviations = null;
+	return super.remove(dataList);
+    }
+
+    /**
+     * Adds the values of the given data list to the sums of the pool values (sign 1) or subtracts them (sign -1).
+     */
+    private void updateSums (DataList dataList, int sign)
+    {
+	DataList firstList = dataPool.get(0);
+	for (int index = 0; index < sumValues.length; index++) {
+	    double value = dataList.getValue(index);
+	    double diff = value - firstList.getValue(index);
+	    if (sign > 0) {
+		sumValues[index] += value;
+		sumDiffs[index] += diff;
+		sumSquaredDiffs[index] += diff * diff;
+	    } else {
+		sumValues[index] -= value;
+		sumDiffs[index] -= diff;
+		sumSquaredDiffs[index] -= diff * diff;
+	    }
+	}
+    }
+
     /**
      * Returns the most similar list in the pool to the specified data list.
      *
@@ -36,18 +128,15 @@ public class AverageAnalyzerModule extends AnalyzerModule
      */
     public DataList mostSimilarList (DataList dataList, int initSlot, int slotWindow)
     {
-	DataList weightedList = new DataList("average.trace", null);
-	for (int index = 0; index < dataPool.get(0).size(); index++) {
-	    double sumValue = 0;
-	    DataEntry entry = null;
-	    for (DataList poolList : dataPool) {
-		entry = poolList.getEntryByIndex(index);
-		sumValue += entry.getValue();
-	    }
-	    weightedList.addEntry(sumValue / size(), entry.getTimeslot());
+	if (averageList == null) {
+	    computeStatistics();
 	}
-	computeWeightingFactors(dataList, weightedList, initSlot, slotWindow);
-	return weightedList;
+	factorDataList = dataList;
+	factorInitSlot = initSlot;
+	factorSlotWindow = slotWindow;
+	alphaFactorList = null;
+	betaFactorList = null;
+	return averageList;
     }
     
     /**
@@ -57,6 +146,9 @@ public class AverageAnalyzerModule extends AnalyzerModule
      */
     public DataList alphaWeightingFactorList ()
     {
+	if (alphaFactorList == null) {
+	    computeWeightingFactors(factorDataList, factorInitSlot, factorSlotWindow);
+	}
 	return alphaFactorList;
     }
      
@@ -67,38 +159,56 @@ public class AverageAnalyzerModule extends AnalyzerModule
      */
     public DataList betaWeightingFactorList ()
     {
+	if (betaFactorList == null) {
+	    computeWeightingFactors(factorDataList, factorInitSlot, factorSlotWindow);
+	}
 	return betaFactorList;
     }
     
     /**
-     * Computes the data lists with the weighting factors for UD-WCMA predictions.
+     * Computes the statistics of the pool that do not depend on the initial timeslot from the sums of the pool
+     * values: the average data list and the deviation of the pool lists from it at every index. The sums are
+     * only computed again from the whole pool if they were discarded.
      */
-    private void computeWeightingFactors (DataList dataList, DataList weightedList, int initSlot, int slotWindow)
+    private void computeStatistics ()
     {
-	DataList deviationList = new DataList("deviation.trace", null);
-	DataList averageVarList = new DataList("averageVar.trace", null);
-	int numDataLists = size();
-	DataEntry initSlotEntry, entry = null;
-	int initIndex = dataPool.get(0).getIndexByTimeslot(initSlot);
-	int endIndex = dataPool.get(0).size();
-	for (int index = initIndex; index < endIndex; index++) {
-	    double sumValue = 0;
-	    double sumVarValue = 0;
+	int numEntries = dataPool.get(0).size();
+	if (sumValues == null) {
+	    sumValues = new double[numEntries];
+	    sumDiffs = new double[numEntries];
+	    sumSquaredDiffs = new double[numEntries];
 	    for (DataList poolList : dataPool) {
-		initSlotEntry = poolList.getEntryByTimeslot(initSlot);
-		entry = poolList.getEntryByIndex(index);
-		sumValue += Math.pow(entry.getValue() - weightedList.getEntryByIndex(index).getValue(), 2);
-		sumVarValue += entry.getValue() - initSlotEntry.getValue();
+		updateSums(poolList, 1);
 	    }
-	    deviationList.addEntry(Math.sqrt(sumValue / numDataLists), entry.getTimeslot());
-	    averageVarList.addEntry(sumVarValue / numDataLists, entry.getTimeslot());
+	}
+	int numDataLists = size();
+	DataList lastList = dataPool.get(numDataLists - 1);
+	averageList = new DataList("average.trace", null);
+	deviations = new double[numEntries];
+	for (int index = 0; index < numEntries; index++) {
+	    averageList.addEntry(sumValues[index] / numDataLists, lastList.getTimeslot(index));
+	    // Variance of the differences with the first pool list (the same as the one of the values)
+	    double averageDiff = sumDiffs[index] / numDataLists;
+	    deviations[index] = Math.sqrt(Math.max(sumSquaredDiffs[index] / numDataLists - averageDiff * averageDiff, 0.0));
+	}
+    }
+    
+    /**
+     * Computes the data lists with the weighting factors for UD-WCMA predictions.
+     */
+    private void computeWeightingFactors (DataList dataList, int initSlot, int slotWindow)
+    {
+	int numDataLists = size();
+	double[] initValues = new double[numDataLists];
+	for (int p = 0; p < numDataLists; p++) {
+	    initValues[p] = dataPool.get(p).valueAt(initSlot);
 	}
 	
 	double[] dataDiff = new double[slotWindow - 1];
 	double sumDataDiff = 0.0;
 	int initDataIndex = dataList.getIndexByTimeslot(initSlot);
 	for (int index = initDataIndex; index >= initDataIndex - slotWindow + 2; index--) {
-	    dataDiff[initDataIndex - index] = dataList.getEntryByIndex(index).getValue() - dataList.getEntryByIndex(index - 1).getValue();
+	    dataDiff[initDataIndex - index] = dataList.getValue(index) - dataList.getValue(index - 1);
 	    sumDataDiff += dataDiff[initDataIndex - index];
 	}
 	double avgDataDiff = sumDataDiff / (slotWindow - 1);
@@ -110,14 +220,19 @@ public class AverageAnalyzerModule extends AnalyzerModule
 	
 	alphaFactorList = new DataList("alphaWeightingFactor.trace", null);
 	betaFactorList = new DataList("betaWeightingFactor.trace", null);
-	for (DataEntry averageVarEntry : averageVarList.getList()) {
-	    int timeslot = averageVarEntry.getTimeslot();
-	    double deviation = deviationList.getEntryByTimeslot(timeslot).getValue();
+	DataList lastList = dataPool.get(numDataLists - 1);
+	int initIndex = dataPool.get(0).getIndexByTimeslot(initSlot);
+	for (int index = initIndex; index < deviations.length; index++) {
+	    int timeslot = lastList.getTimeslot(index);
+	    double sumVarValue = 0;
+	    for (int p = 0; p < numDataLists; p++) {
+		sumVarValue += dataPool.get(p).getValue(index) - initValues[p];
+	    }
+	    double averageVar = sumVarValue / numDataLists;
+	    double deviation = deviations[index];
 	    double sumValue = 0;
-	    for (DataList poolList : dataPool) {
-		initSlotEntry = poolList.getEntryByTimeslot(initSlot);
-		entry = poolList.getEntryByTimeslot(timeslot);
-		sumValue += Math.pow(entry.getValue() - initSlotEntry.getValue() - averageVarEntry.getValue(), 2);
+	    for (int p = 0; p < numDataLists; p++) {
+		sumValue += Math.pow(dataPool.get(p).getValue(index) - initValues[p] - averageVar, 2);
 	    }
 	    double alphaWeightingFactor = deviation / (deviation + Math.sqrt(sumValue / numDataLists)) / 2;
 	    double betaWeightingFactor = alphaWeightingFactor + deviation / (deviation + devDataDiff) / 2;
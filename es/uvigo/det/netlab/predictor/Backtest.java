@@ -0,0 +1,210 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class implements a backtest that uses every day in the trace directory as the challenge in turn.
+ *
+ * The trace directory is loaded once and shared (read-only) by all the challenge days, which are simulated
+ * in parallel on a fork-join pool. The trace pool of each day holds the previous days within the configured
+ * number of previous days (all the previous days if it is 0). The error accumulators of the challenge days are
+ * merged, so the aggregate error measures are the ones of the predictions of all the days together.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class Backtest
+{
+    private static final long MILLIS_PER_DAY = EnergyPredictor.SECONDS_PER_DAY * 1000L;
+
+    private Backtest () {}
+
+    /**
+     * This class simulates a range of challenge days and merges the error accumulators of all of them.
+     * The range is split in halves until it holds a single day, so idle workers steal the pending halves.
+     */
+    private static final class DayRange extends RecursiveTask<ErrorAccumulator[]>
+    {
+	private static final long serialVersionUID = 1L;
+
+	private final Configuration config;
+	private final DataList[] traceLists;
+	private final ErrorAccumulator[][] dayAccumulators;
+	private final int firstDay;
+	private final int lastDay;
+
+	DayRange (Configuration config, DataList[] traceLists, ErrorAccumulator[][] dayAccumulators, int firstDay, int lastDay)
+	{
+	    this.config = config;
+	    this.traceLists = traceLists;
+	    this.dayAccumulators = dayAccumulators;
+	    this.firstDay = firstDay;
+	    this.lastDay = lastDay;
+	}
+
+	protected ErrorAccumulator[] compute ()
+	{
+	    if (firstDay == lastDay) {
+		try {
+		    dayAccumulators[firstDay] = simulate(config, traceLists, firstDay);
+		} catch (RuntimeException e) {
+		    throw new RuntimeException(traceLists[firstDay].getLabel() + ": " + e, e);
+		}
+		// The per-day accumulators are reported later, so they are merged into new ones
+		return merge(null, dayAccumulators[firstDay]);
+	    }
+	    int middleDay = (firstDay + lastDay) >>> 1;
+	    DayRange firstHalf = new DayRange(config, traceLists, dayAccumulators, firstDay, middleDay);
+	    DayRange secondHalf = new DayRange(config, traceLists, dayAccumulators, middleDay + 1, lastDay);
+	    firstHalf.fork();
+	    ErrorAccumulator[] secondAccumulators = secondHalf.compute();
+	    // Merged in day order so that the aggregate error measures do not depend on the scheduling
+	    return merge(firstHalf.join(), secondAccumulators);
+	}
+    }
+
+    /**
+     * Runs the backtest and writes the per-day and aggregate error measures to the result sink of the simulator.
+     *
+     * @param config the simulator configuration
+     */
+    public static void run (final Configuration config)
+    {
+	TraceCatalog traceCatalog = EnergyPredictor.openTraceCatalog(config);
+	final List<TraceCatalog.Entry> catalogEntries = traceCatalog.entries();
+	final DataList[] traceLists = TraceLoader.load(catalogEntries, config);
+	ResultSink sink = EnergyPredictor.resultSink;
+	sink.message("\nBacktest trace pool size: " + traceLists.length + "\n");
+
+	// Every challenge day is simulated as a separate fork-join task
+	ErrorAccumulator[][] dayAccumulators = new ErrorAccumulator[traceLists.length][];
+	ErrorAccumulator[] accumulators = null;
+	if (traceLists.length > 0) {
+	    ForkJoinPool forkJoinPool = new ForkJoinPool(config.parallelism);
+	    try {
+		accumulators = forkJoinPool.invoke(new DayRange(config, traceLists, dayAccumulators, 0, traceLists.length - 1));
+	    } catch (RuntimeException e) {
+		EnergyPredictor.printError("Backtest error: " + e.getMessage());
+	    } finally {
+		forkJoinPool.shutdown();
+	    }
+	}
+
+	// Per-day error measures
+	int numHorizons = config.predictionHorizon / config.predictionStep;
+	int numDays = 0;
+	for (int i = 0; i < traceLists.length; i++) {
+	    if (dayAccumulators[i] == null) {
+		sink.message("Challenge: " + traceLists[i].getLabel() + " skipped");
+		continue;
+	    }
+	    numDays++;
+	    for (int h = 0; h < numHorizons; h++) {
+		sink.errorMetrics(traceLists[i].getLabel(), dayAccumulators[i][h].getMetrics());
+	    }
+	}
+
+	// Aggregate error measures (over the predictions of all the challenge days)
+	sink.message("\nBacktest challenge days: " + numDays + "\n");
+	ErrorMetrics[] metrics = getMetrics(accumulators);
+	for (int h = 0; metrics != null && h < numHorizons; h++) {
+	    metrics[h].print(sink);
+	}
+    }
+
+    /**
+     * Simulates every challenge day sequentially and returns the error measures of the predictions of all of them.
+     *
+     * @param  config     the simulator configuration
+     * @param  traceLists the data lists of all the trace files sorted by date
+     * @return the error measures for every horizon, or null if no challenge day can be simulated
+     */
+    static ErrorMetrics[] evaluate (Configuration config, DataList[] traceLists)
+    {
+	ErrorAccumulator[] accumulators = null;
+	for (int i = 0; i < traceLists.length; i++) {
+	    accumulators = merge(accumulators, simulate(config, traceLists, i));
+	}
+	return getMetrics(accumulators);
+    }
+
+    /**
+     * Merges the given per-horizon error accumulators (of independent challenge days) into the total ones.
+     * The accumulators with undefined errors (e.g. NaN predictions) are left out, as their error measures are.
+     *
+     * @return the total error accumulators (new ones if there were none), or null if both are null
+     */
+    private static ErrorAccumulator[] merge (ErrorAccumulator[] total, ErrorAccumulator[] accumulators)
+    {
+	if (accumulators == null) {
+	    return total;
+	}
+	if (total == null) {
+	    total = new ErrorAccumulator[accumulators.length];
+	    for (int h = 0; h < accumulators.length; h++) {
+		total[h] = new ErrorAccumulator(accumulators[h].getHorizon());
+	    }
+	}
+	for (int h = 0; h < accumulators.length; h++) {
+	    if (accumulators[h].isDefined()) {
+		total[h].merge(accumulators[h]);
+	    }
+	}
+	return total;
+    }
+
+    /**
+     * Returns the error measures of the given per-horizon error accumulators.
+     *
+     * @return the error measures for every horizon, or null if there are no accumulators
+     */
+    private static ErrorMetrics[] getMetrics (ErrorAccumulator[] accumulators)
+    {
+	if (accumulators == null) {
+	    return null;
+	}
+	ErrorMetrics[] metrics = new ErrorMetrics[accumulators.length];
+	for (int h = 0; h < accumulators.length; h++) {
+	    metrics[h] = accumulators[h].getMetrics();
+	}
+	return metrics;
+    }
+
+    /**
+     * Simulates the given challenge day using the previous days as trace pool.
+     *
+     * @return the error accumulators of the challenge day for every horizon, or null if the day cannot be simulated
+     */
+    private static ErrorAccumulator[] simulate (Configuration config, DataList[] traceLists, int day)
+    {
+	// Resizing modifies the data list, so the shared one is copied
+	DataList challengeList = EnergyPredictor.resizeChallenge(config, traceLists[day]);
+	Simulation simulation;
+	try {
+	    simulation = new Simulation(config, challengeList, traceLists[day]);
+	} catch (Simulation.InvalidChallengeException e) {
+	    return null;
+	}
+	if (!config.analyzerMode.equals("void")) {
+	    long challengeTime = challengeList.getDate().getTime();
+	    for (int i = 0; i < day; i++) {
+		long diffDays = (challengeTime - traceLists[i].getDate().getTime()) / MILLIS_PER_DAY;
+		if (diffDays > 0 && (config.numPreviousDays <= 0 || diffDays <= config.numPreviousDays)) {
+		    simulation.addTrace(traceLists[i]);
+		}
+	    }
+	    if (simulation.poolSize() == 0) {
+		return null;
+	    }
+	}
+	try {
+	    simulation.run(false);
+	} catch (Simulation.InvalidChallengeException e) {
+	    // Not enough challenge timeslots for this challenge day
+	    return null;
+	}
+	return simulation.getErrorAccumulators();
+    }
+}
@@ -0,0 +1,162 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * This class implements the result sink that writes the results as compact binary records (big-endian, as
+ * written by DataOutputStream). Every record starts with a type byte:
+ *
+ *   MESSAGE         UTF text
+ *   DATA_LIST       UTF label, int numEntries, double energyHarvested
+ *   DATA_ENTRY      int timeslot, double value, double weight
+ *   END_DATA_LIST   (no fields)
+ *   SOLAR           int sunrise, int sunset, int noon
+ *   PREDICTION      int horizon, int timeslot, double actual, double predicted, double absError, double perError
+ *   METRICS         UTF challenge (empty for the whole run), int horizon, int numValues,
+ *                   double mae, double mape, double rmse, double mase, double madp
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class BinaryResultSink implements ResultSink
+{
+    /**
+     * Record types
+     */
+    public static final byte MESSAGE = 1;
+    public static final byte DATA_LIST = 2;
+    public static final byte DATA_ENTRY = 3;
+    public static final byte END_DATA_LIST = 4;
+    public static final byte SOLAR = 5;
+    public static final byte PREDICTION = 6;
+    public static final byte METRICS = 7;
+
+    /**
+     * The size of the output buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The buffered output
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Creates a new binary result sink.
+     *
+     * @param out the output stream
+     */
+    public BinaryResultSink (OutputStream out)
+    {
+	this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    }
+
+    public void message (String text)
+    {
+	try {
+	    out.writeByte(MESSAGE);
+	    out.writeUTF(text);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void dataList (String label, int numEntries, double energyHarvested)
+    {
+	try {
+	    out.writeByte(DATA_LIST);
+	    out.writeUTF(label);
+	    out.writeInt(numEntries);
+	    out.writeDouble(energyHarvested);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void dataEntry (int timeslot, double value, double weight)
+    {
+	try {
+	    out.writeByte(DATA_ENTRY);
+	    out.writeInt(timeslot);
+	    out.writeDouble(value);
+	    out.writeDouble(weight);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void endDataList ()
+    {
+	try {
+	    out.writeByte(END_DATA_LIST);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void solarTimeslots (int sunrise, int sunset, int noon)
+    {
+	try {
+	    out.writeByte(SOLAR);
+	    out.writeInt(sunrise);
+	    out.writeInt(sunset);
+	    out.writeInt(noon);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void prediction (int horizon, int timeslot, double actual, double predicted, double absError, double perError)
+    {
+	try {
+	    out.writeByte(PREDICTION);
+	    out.writeInt(horizon);
+	    out.writeInt(timeslot);
+	    out.writeDouble(actual);
+	    out.writeDouble(predicted);
+	    out.writeDouble(absError);
+	    out.writeDouble(perError);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void errorMetrics (String challenge, ErrorMetrics metrics)
+    {
+	try {
+	    out.writeByte(METRICS);
+	    out.writeUTF(challenge == null ? "" : challenge);
+	    out.writeInt(metrics.getHorizon());
+	    out.writeInt(metrics.getNumValues());
+	    out.writeDouble(metrics.getMae());
+	    out.writeDouble(metrics.getMape());
+	    out.writeDouble(metrics.getRmse());
+	    out.writeDouble(metrics.getMase());
+	    out.writeDouble(metrics.getMadp());
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void flush ()
+    {
+	try {
+	    out.flush();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void close ()
+    {
+	try {
+	    out.close();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+}
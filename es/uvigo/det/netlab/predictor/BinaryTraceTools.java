@@ -0,0 +1,254 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * This class reads and writes binary trace files and converts plain-text trace files into binary ones.
+ *
+ * A binary trace file stores a 24-byte little-endian header followed by the data values:
+ * magic number (int), format version (byte), value size in bytes (byte, 4 for floats or 8 for doubles),
+ * reserved (short), trace date in milliseconds since the epoch (long), timeslot step (int)
+ * and number of values (int).
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class BinaryTraceTools
+{
+    /**
+     * The extension of binary trace files.
+     */
+    public static final String EXTENSION = ".btrace";
+
+    private static final int MAGIC = 0x52545045; // "EPTR"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private BinaryTraceTools () {}
+
+    /**
+     * Returns true if the specified file is a binary trace file.
+     *
+     * @param  traceFile the trace file
+     * @return true if the specified file is a binary trace file
+     */
+    public static boolean isBinaryTrace (File traceFile)
+    {
+	return traceFile.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Adds the data stored in the specified binary trace file to the given data list.
+     * The file is memory-mapped, so its values are read without any parsing.
+     *
+     * @param  dataList  the data list
+     * @param  traceFile the binary trace file
+     * @param  slotStep  the timeslot step
+     * @return true if the data stored in the binary trace file was successfully added to the data list
+     */
+    public static boolean read (DataList dataList, File traceFile, int slotStep)
+    {
+	try {
+	    FileChannel channel = FileChannel.open(traceFile.toPath(), StandardOpenOption.READ);
+	    try {
+		long fileSize = channel.size();
+		if (fileSize < HEADER_SIZE) {
+		    return false;
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+		    return false;
+		}
+		int valueSize = buffer.get(5);
+		int traceSlotStep = buffer.getInt(16);
+		int count = buffer.getInt(20);
+		if ((valueSize != 4 && valueSize != 8) || count < 0 || HEADER_SIZE + (long) count * valueSize > fileSize) {
+		    return false;
+		}
+		if (traceSlotStep > 0 && traceSlotStep != slotStep) {
+		    return false;
+		}
+		dataList.ensureCapacity(dataList.size() + count);
+		int timeslot = slotStep;
+		for (int i = 0, position = HEADER_SIZE; i < count; i++, position += valueSize) {
+		    double value = valueSize == 8 ? buffer.getDouble(position) : buffer.getFloat(position);
+		    if (!dataList.addEntry(value, timeslot)) {
+			return false;
+		    }
+		    timeslot += slotStep;
+		}
+	    } finally {
+		channel.close();
+	    }
+	} catch (IOException e) {
+	    return false;
+	}
+	return true;
+    }
+
+    /**
+     * Returns the number of values stored in the specified binary trace file.
+     *
+     * @param  traceFile the binary trace file
+     * @return the number of values stored in the binary trace file, or -1 if it is not a valid binary trace file
+     * @throws IOException if the binary trace file cannot be read
+     */
+    public static int count (File traceFile) throws IOException
+    {
+	DataInputStream in = new DataInputStream(new FileInputStream(traceFile));
+	try {
+	    byte[] header = new byte[HEADER_SIZE];
+	    in.readFully(header);
+	    ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+	    if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+		return -1;
+	    }
+	    return buffer.getInt(20);
+	} catch (EOFException e) {
+	    return -1;
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Writes the specified values into a binary trace file.
+     *
+     * @param  traceFile the binary trace file
+     * @param  values    the data values
+     * @param  count     the number of data values
+     * @param  date      the trace date
+     * @param  slotStep  the timeslot step (0 if unspecified)
+     * @param  useFloats store the data values as floats if true (doubles otherwise)
+     * @throws IOException if the binary trace file cannot be written
+     */
+    public static void write (File traceFile, double[] values, int count, Date date, int slotStep, boolean useFloats) throws IOException
+    {
+	int valueSize = useFloats ? 4 : 8;
+	ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * valueSize).order(ByteOrder.LITTLE_ENDIAN);
+	buffer.putInt(MAGIC);
+	buffer.put(VERSION);
+	buffer.put((byte) valueSize);
+	buffer.putShort((short) 0);
+	buffer.putLong(date == null ? 0 : date.getTime());
+	buffer.putInt(slotStep);
+	buffer.putInt(count);
+	for (int i = 0; i < count; i++) {
+	    if (useFloats) {
+		buffer.putFloat((float) values[i]);
+	    } else {
+		buffer.putDouble(values[i]);
+	    }
+	}
+	buffer.flip();
+	FileChannel channel = FileChannel.open(traceFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					       StandardOpenOption.TRUNCATE_EXISTING);
+	try {
+	    while (buffer.hasRemaining()) {
+		channel.write(buffer);
+	    }
+	} finally {
+	    channel.close();
+	}
+    }
+
+    /**
+     * Converts the specified plain-text trace file into a binary trace file.
+     *
+     * @param  textFile   the plain-text trace file
+     * @param  binaryFile the binary trace file
+     * @param  date       the trace date
+     * @param  slotStep   the timeslot step (0 if unspecified)
+     * @param  useFloats  store the data values as floats if true (doubles otherwise)
+     * @throws IOException if any of the trace files cannot be read or written
+     */
+    public static void convert (File textFile, File binaryFile, Date date, int slotStep, boolean useFloats) throws IOException
+    {
+	double[] values = new double[1440];
+	int count = 0;
+	BufferedReader traceReader = new BufferedReader(new FileReader(textFile));
+	try {
+	    for (String data; (data = traceReader.readLine()) != null; ) {
+		if (count == values.length) {
+		    values = Arrays.copyOf(values, count * 2);
+		}
+		try {
+		    values[count++] = Double.parseDouble(data);
+		} catch (NumberFormatException e) {
+		    throw new IOException("invalid value in " + textFile.getPath() + ": " + data);
+		}
+	    }
+	} finally {
+	    traceReader.close();
+	}
+	write(binaryFile, values, count, date, slotStep, useFloats);
+    }
+
+    /**
+     * Main method: converts all the plain-text trace files in a directory into binary trace files.
+     * Usage: java BinaryTraceTools DIR EXTENSION DATEFORMAT SLOTSTEP [float|double] [OUTDIR]
+     */
+    public static void main (String[] args)
+    {
+	String usage = "Usage: java BinaryTraceTools DIR EXTENSION DATEFORMAT SLOTSTEP [float|double] [OUTDIR]";
+	if (args.length < 4) {
+	    EnergyPredictor.printError(usage);
+	}
+	File tracePath = new File(args[0]);
+	final String traceExtension = args[1];
+	SimpleDateFormat traceDateParser = new SimpleDateFormat(args[2]);
+	int slotStep = 0;
+	try {
+	    slotStep = Integer.parseInt(args[3]);
+	} catch (NumberFormatException e) {
+	    EnergyPredictor.printError("Invalid timeslot step!\n\n" + usage);
+	}
+	boolean useFloats = false;
+	if (args.length > 4) {
+	    if (!args[4].matches("float|double")) {
+		EnergyPredictor.printError("Invalid value type: " + args[4] + "\n\n" + usage);
+	    }
+	    useFloats = args[4].equals("float");
+	}
+	File outputPath = args.length > 5 ? new File(args[5]) : tracePath;
+	if (!tracePath.isDirectory()) {
+	    EnergyPredictor.printError(tracePath.getPath() + " is not a directory!");
+	}
+	if (!outputPath.isDirectory() && !outputPath.mkdirs()) {
+	    EnergyPredictor.printError("Cannot create output directory " + outputPath.getPath() + "!");
+	}
+	File[] traceFiles = tracePath.listFiles(new FileFilter() {
+		public boolean accept (File file) {
+		    return file.getName().endsWith(traceExtension) && !isBinaryTrace(file);
+		}
+	    });
+	int numConverted = 0;
+	for (File f : traceFiles) {
+	    String traceFilename = f.getName();
+	    Date traceDate = null;
+	    try {
+		traceDate = traceDateParser.parse(traceFilename);
+	    } catch (Exception e) {
+		EnergyPredictor.printError("Error while obtaining trace date of " + traceFilename + "!");
+	    }
+	    // Only files with the trace extension are converted
+	    String baseName = traceFilename.substring(0, traceFilename.length() - traceExtension.length());
+	    try {
+		convert(f, new File(outputPath, baseName + EXTENSION), traceDate, slotStep, useFloats);
+	    } catch (IOException e) {
+		EnergyPredictor.printError(f.getPath() + " conversion error: " + e.getMessage());
+	    }
+	    numConverted++;
+	}
+	System.out.println("Converted " + numConverted + " trace files into " + outputPath.getPath());
+    }
+}
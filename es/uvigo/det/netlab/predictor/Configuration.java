@@ -0,0 +1,661 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * This class implements the simulator configuration read from a configuration file.
+ *
+ * @author Sergio Herreria-Alonso 
+ * @version 1.0
+ */
+public class Configuration implements Cloneable
+{
+    /**
+     * The challenge trace file.
+     */
+    public File challengePath = null;
+
+    /**
+     * The format used to obtain the date from the challenge file name.
+     */
+    public String challengeDateFormat = "yyyyMMdd'.trace'";
+
+    /**
+     * The directory with the trace files.
+     */
+    public File tracePath = null;
+
+    /**
+     * The extension of the trace files.
+     */
+    public String traceExtension = ".trace";
+
+    /**
+     * The format used to obtain the date from the trace file names.
+     */
+    public String traceDateFormat = "yyyyMMdd'.trace'";
+
+    /**
+     * The number of worker threads used to load trace files.
+     */
+    public int loaderThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Use virtual threads (if supported by the JVM) to load trace files if true.
+     */
+    public boolean virtualThreads = false;
+
+    /**
+     * The number of worker threads used to simulate challenge days (backtest mode) or configurations (sweep mode).
+     */
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The latitude of the location in decimal degrees.
+     */
+    public double latitude = 0.0;
+
+    /**
+     * The longitude of the location in decimal degrees.
+     */
+    public double longitude = 0.0;
+
+    /**
+     * The time zone of the location.
+     */
+    public String timeZone = "";
+
+    /**
+     * The ephemeris of the sunrise and sunset times of the location (shared by the copies of this configuration).
+     */
+    public Ephemeris ephemeris = new Ephemeris(null);
+
+    /**
+     * The format of the simulator results (text, csv or binary).
+     */
+    public String outputFormat = "text";
+
+    /**
+     * The file where the simulator results are written (null for standard output).
+     */
+    public File outputPath = null;
+
+    /**
+     * The initial timeslot (0 to start at sunrise with solar traces).
+     */
+    public int initialTimeslot = 0;
+
+    /**
+     * The final timeslot (0 to end at sunset with solar traces).
+     */
+    public int finalTimeslot = 0;
+
+    /**
+     * The timeslot step.
+     */
+    public int timeslotStep = 1;
+
+    /**
+     * The prediction horizon.
+     */
+    public int predictionHorizon = 1;
+
+    /**
+     * The prediction step.
+     */
+    public int predictionStep = 1;
+
+    /**
+     * The analyzer mode.
+     */
+    public String analyzerMode = "void";
+
+    /**
+     * Update the similarity of the pool lists incrementally as the window slides (MAE analyzer) if true.
+     */
+    public boolean incrementalAnalyzer = false;
+
+    /**
+     * The predictor mode.
+     */
+    public String predictorMode = "dumb";
+
+    /**
+     * The number of past timeslots used by the analyzer and the predictor.
+     */
+    public int timeslotWindow = 1;
+
+    /**
+     * The number of trace files combined by the analyzer.
+     */
+    public int combinedTraceFiles = 1;
+
+    /**
+     * The number of previous days in the trace pool (0 for all of them).
+     */
+    public int numPreviousDays = 0;
+
+    /**
+     * The weighting factor.
+     */
+    public double weightingFactor = 0.5;
+
+    /**
+     * The correlation factor.
+     */
+    public double correlationFactor = 0;
+
+    /**
+     * Use exact solar model if true.
+     */
+    public boolean exactSaaModel = false;
+
+    /**
+     * The degree of the Taylor/Chebyshev series.
+     */
+    public int seriesDegree = 0;
+
+    /**
+     * The approximation of the trigonometric functions (Taylor/Chebyshev series or lookup table).
+     */
+    public TrigTools.SeriesType seriesType = TrigTools.SeriesType.TAYLOR;
+
+    /**
+     * The number of intervals of the trigonometric lookup tables.
+     */
+    public int tableSize = 1024;
+
+    /**
+     * The autoregressive coefficients.
+     */
+    public double[] arCoef = null;
+
+    /**
+     * The moving average coefficients.
+     */
+    public double[] maCoef = null;
+
+    /**
+     * The names of the predictor parameters swept in sweep mode.
+     */
+    public List<String> sweepParameters = new ArrayList<String>();
+
+    /**
+     * The values of each swept parameter (in the same order as the parameter names).
+     */
+    public List<double[]> sweepValues = new ArrayList<double[]>();
+
+    /**
+     * The sampling of the parameter grid in sweep mode (grid, random or lhs).
+     */
+    public String sweepSampling = "grid";
+
+    /**
+     * The number of sampled configurations for random and Latin hypercube sampling.
+     */
+    public int sweepSamples = 0;
+
+    /**
+     * The seed used for random and Latin hypercube sampling.
+     */
+    public long sweepSeed = 0;
+
+    /**
+     * The error measure used to rank configurations in sweep mode (mae, mape, rmse, mase or madp).
+     */
+    public String sweepMetric = "mae";
+
+    /**
+     * The horizon used to rank configurations in sweep mode (0 for the average over all horizons).
+     */
+    public int sweepHorizon = 0;
+
+    /**
+     * Creates a new configuration with default settings.
+     */
+    public Configuration ()
+    {
+    }
+
+    /**
+     * Reads the settings stored in the specified configuration file.
+     * Prints an error message and exits if any setting is invalid.
+     *
+     * @param configFile the configuration file
+     */
+    public void read (BufferedReader configFile)
+    {
+        try {
+            for (String line; (line = configFile.readLine()) != null;) {
+                if (line.startsWith(";")) { // Just a comment
+                    continue;
+                }
+                String[] line_fields = line.split("\\s+");
+                if (line_fields[0].equals("CHALLENGE") && line_fields.length > 1) {
+		    challengePath = new File(line_fields[1]);
+		    if (!challengePath.exists()) {
+			EnergyPredictor.printError("Config file: challenge file " + line_fields[1] + " does not exist!");
+		    }
+		    if (challengePath.isDirectory()) {
+			EnergyPredictor.printError("Config file: challenge file " + line_fields[1] + " is a directory!");
+		    }
+		    if (line_fields.length > 2) {
+			challengeDateFormat = line_fields[2];
+		    }
+		} else if (line_fields[0].equals("TRACES") && line_fields.length > 1) {
+		    tracePath = new File(line_fields[1]);
+		    if (line_fields.length > 2) {
+			traceExtension = line_fields[2];
+			if (line_fields.length > 3) {
+			    traceDateFormat = line_fields[3];
+			}
+		    }
+		} else if (line_fields[0].equals("THREADS") && line_fields.length > 1) {
+		    try {
+			loaderThreads = Integer.parseInt(line_fields[1]);
+		    } catch (NumberFormatException e) {
+			EnergyPredictor.printError("Config file: invalid number of threads!");
+		    }
+		    if (loaderThreads <= 0) {
+			EnergyPredictor.printError("Config file: invalid number of threads!");
+		    }
+		    if (line_fields.length > 2) {
+			if (line_fields[2].matches("platform|virtual")) {
+			    virtualThreads = line_fields[2].equals("virtual");
+			} else {
+			    EnergyPredictor.printError("Config file: invalid thread type!");
+			}
+		    }
+		} else if (line_fields[0].equals("PARALLELISM") && line_fields.length > 1) {
+		    try {
+			parallelism = Integer.parseInt(line_fields[1]);
+		    } catch (NumberFormatException e) {
+			EnergyPredictor.printError("Config file: invalid parallelism!");
+		    }
+		    if (parallelism <= 0) {
+			EnergyPredictor.printError("Config file: invalid parallelism!");
+		    }
+		} else if (line_fields[0].equals("ANALYZER") && line_fields.length > 1) {
+		    if (line_fields[1].matches("exact|incremental")) {
+			incrementalAnalyzer = line_fields[1].equals("incremental");
+		    } else {
+			EnergyPredictor.printError("Config file: invalid analyzer update mode!");
+		    }
+		} else if (line_fields[0].equals("SWEEP")) {
+		    if (line_fields.length < 3) {
+			EnergyPredictor.printError("Config file: not enough sweep parameters!");
+		    }
+		    if (!line_fields[1].matches("slotWindow|numCombinedTraces|numPrevDays|numPrevSlots|alpha|g|seriesDegree|(ar|ma)Coef[1-9][0-9]*")) {
+			EnergyPredictor.printError("Config file: invalid sweep parameter " + line_fields[1] + "!");
+		    }
+		    double[] values = null;
+		    try {
+			String[] range = line_fields[2].split(":");
+			if (range.length == 3) {
+			    double min = Double.parseDouble(range[0]);
+			    double max = Double.parseDouble(range[1]);
+			    double step = Double.parseDouble(range[2]);
+			    if (step <= 0 || max < min) {
+				EnergyPredictor.printError("Config file: invalid range for sweep parameter " + line_fields[1] + "!");
+			    }
+			    int numValues = (int) Math.floor((max - min) / step + 1e-9) + 1;
+			    values = new double[numValues];
+			    for (int i = 0; i < numValues; i++) {
+				// Rounded to avoid accumulating floating-point errors in the values
+				values[i] = Math.round((min + i * step) * 1e9) / 1e9;
+			    }
+			} else {
+			    values = Arrays.stream(line_fields[2].split(",")).mapToDouble(Double::parseDouble).toArray();
+			}
+		    } catch (NumberFormatException e) {
+			EnergyPredictor.printError("Config file: invalid values for sweep parameter " + line_fields[1] + "!");
+		    }
+		    int index = sweepParameters.indexOf(line_fields[1]);
+		    if (index >= 0) {
+			sweepValues.set(index, values);
+		    } else {
+			sweepParameters.add(line_fields[1]);
+			sweepValues.add(values);
+		    }
+		} else if (line_fields[0].equals("SWEEPMODE") && line_fields.length > 1) {
+		    if (!line_fields[1].matches("grid|random|lhs")) {
+			EnergyPredictor.printError("Config file: invalid sweep mode!");
+		    }
+		    sweepSampling = line_fields[1];
+		    if (!sweepSampling.equals("grid")) {
+			try {
+			    sweepSamples = Integer.parseInt(line_fields[2]);
+			    if (line_fields.length > 3) {
+				sweepSeed = Long.parseLong(line_fields[3]);
+			    }
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			    EnergyPredictor.printError("Config file: invalid " + sweepSampling + " sweep configuration!");
+			}
+			if (sweepSamples <= 0) {
+			    EnergyPredictor.printError("Config file: invalid number of sweep samples!");
+			}
+		    }
+		} else if (line_fields[0].equals("SWEEPMETRIC") && line_fields.length > 1) {
+		    if (!line_fields[1].matches("mae|mape|rmse|mase|madp")) {
+			EnergyPredictor.printError("Config file: invalid sweep metric!");
+		    }
+		    sweepMetric = line_fields[1];
+		    if (line_fields.length > 2) {
+			try {
+			    sweepHorizon = Integer.parseInt(line_fields[2]);
+			} catch (NumberFormatException e) {
+			    EnergyPredictor.printError("Config file: invalid sweep horizon!");
+			}
+			if (sweepHorizon < 0) {
+			    EnergyPredictor.printError("Config file: invalid sweep horizon!");
+			}
+		    }
+		} else if (line_fields[0].equals("LOCATION")) {
+		    if (line_fields.length < 4) {
+			EnergyPredictor.printError("Config file: not enough location parameters!");
+		    }
+		    try {
+			latitude = Double.parseDouble(line_fields[1]);
+			longitude = Double.parseDouble(line_fields[2]);
+		    } catch (NumberFormatException e) {
+			EnergyPredictor.printError("Config file: invalid challenge location!");
+		    }
+		    timeZone = line_fields[3];
+		    if (Arrays.asList(TimeZone.getAvailableIDs()).contains(timeZone) == false) {
+			EnergyPredictor.printError("Config file: invalid challenge time zone!");
+		    }
+		} else if (line_fields[0].equals("EPHEMERIS") && line_fields.length > 1) {
+		    try {
+			ephemeris.loadTable(new File(line_fields[1]));
+		    } catch (IOException e) {
+			EnergyPredictor.printError("Config file: cannot read ephemeris table " + line_fields[1] + "!");
+		    }
+		} else if (line_fields[0].equals("SUNRISE") && line_fields.length > 1) {
+		    if (line_fields[1].equals("analytic")) {
+			ephemeris = ephemeris.withSunriseSunsetCache(null);
+		    } else if (line_fields[1].equals("http") && line_fields.length > 2) {
+			int maxInFlight = 4;
+			if (line_fields.length > 3) {
+			    try {
+				maxInFlight = Integer.parseInt(line_fields[3]);
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid number of sunrise requests!");
+			    }
+			    if (maxInFlight < 1) {
+				EnergyPredictor.printError("Config file: invalid number of sunrise requests!");
+			    }
+			}
+			String apiUrl = line_fields.length > 4 ? line_fields[4] : SolarTools.API_URL;
+			try {
+			    ephemeris = ephemeris.withSunriseSunsetCache(new SunriseSunsetCache(new File(line_fields[2]), apiUrl, maxInFlight));
+			} catch (IOException e) {
+			    EnergyPredictor.printError("Config file: cannot read sunrise cache " + line_fields[2] + "!");
+			}
+		    } else {
+			EnergyPredictor.printError("Config file: invalid sunrise parameters!");
+		    }
+		} else if (line_fields[0].equals("OUTPUT") && line_fields.length > 1) {
+		    if (!line_fields[1].matches("text|csv|binary")) {
+			EnergyPredictor.printError("Config file: invalid output format!");
+		    }
+		    outputFormat = line_fields[1];
+		    outputPath = line_fields.length > 2 ? new File(line_fields[2]) : null;
+		} else if (line_fields[0].equals("SETTINGS")) {
+		    if (line_fields.length < 6) {
+			EnergyPredictor.printError("Config file: not enough settings parameters!");
+		    }
+		    try {
+			initialTimeslot = Integer.parseInt(line_fields[1]);
+			finalTimeslot = Integer.parseInt(line_fields[2]);
+			timeslotStep = Integer.parseInt(line_fields[3]);
+			predictionHorizon = Integer.parseInt(line_fields[4]);
+			predictionStep = Integer.parseInt(line_fields[5]);
+		    } catch (NumberFormatException e) {
+                        EnergyPredictor.printError("Config file: invalid settings configuration!");
+                    }
+		    if (initialTimeslot < 0) {
+			EnergyPredictor.printError("Config file: invalid initial timeslot!");
+		    }
+		    if (finalTimeslot < initialTimeslot) {
+			EnergyPredictor.printError("Config file: invalid final timeslot!");
+		    }
+		    if (timeslotStep <= 0) {
+			EnergyPredictor.printError("Config file: invalid timeslot step!");
+		    }
+		    if (predictionHorizon < predictionStep) {
+			EnergyPredictor.printError("Config file: invalid prediction horizon!");
+		    }
+		    if (initialTimeslot > 0 && finalTimeslot > 0 && finalTimeslot < initialTimeslot + predictionHorizon) {
+			EnergyPredictor.printError("Config file: invalid prediction horizon!");
+		    }
+		    if (predictionStep < 0) {
+			EnergyPredictor.printError("Config file: invalid prediction step!");
+		    } else if (predictionStep == 0) {
+			predictionStep = timeslotStep;
+		    }
+		} else if (line_fields[0].equals("PREDICTOR") && line_fields.length > 1) {
+		    if (line_fields[1].matches("dumb|pro-energy|pro-energy-vlt|ipro-energy|dwcma|udwcma|saa|saa-sine|wep|arma|ewma")) {
+			predictorMode = line_fields[1];
+		    } else {
+                        EnergyPredictor.printError("Config file: invalid predictor mode!");
+                    }
+		    if (predictorMode.matches("pro-energy|pro-energy-vlt|ipro-energy|dwcma|udwcma")) {
+			try {
+			    timeslotWindow = Integer.parseInt(line_fields[2]);
+			    combinedTraceFiles = Integer.parseInt(line_fields[3]);
+			} catch (NumberFormatException e) {
+			    EnergyPredictor.printError("Config file: invalid " + predictorMode + " predictor configuration!");
+			}
+			if (timeslotWindow <= 1) {
+			    EnergyPredictor.printError("Config file: invalid timeslot window!");
+			}
+			if (combinedTraceFiles <= 0) {
+			    EnergyPredictor.printError("Config file: invalid number of trace files to combine!");
+			}
+			if (predictorMode.matches("dwcma|udwcma")) {
+			    analyzerMode = "average";
+			    numPreviousDays = combinedTraceFiles;
+			} else {
+			    analyzerMode = "mae";
+			    try {
+				numPreviousDays = Integer.parseInt(line_fields[4]);
+				weightingFactor = Double.parseDouble(line_fields[5]);
+				if (predictorMode.matches("pro-energy|pro-energy-vlt")) {
+				    correlationFactor = Double.parseDouble(line_fields[6]);
+				}
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid " + predictorMode + " predictor configuration!");
+			    }
+			    if (numPreviousDays < 0) {
+				EnergyPredictor.printError("Config file: invalid number of previous trace files!");
+			    }
+			    if (weightingFactor < 0 || weightingFactor > 1) {
+				EnergyPredictor.printError("Config file: invalid weighting factor!");
+			    }
+			    if (correlationFactor < 0) {
+				EnergyPredictor.printError("Config file: invalid correlation factor!");
+			    }
+			}
+		    }
+		    if (predictorMode.matches("saa|saa-sine")) {
+			if (predictorMode.equals("saa")) {
+			    exactSaaModel = true;
+			}
+			if (line_fields.length > 2) {
+			    try {
+				seriesDegree = Integer.parseInt(line_fields[2]);
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid degree for Taylor/Chebyshev series!");
+			    }
+			    if (seriesDegree < 0 || seriesDegree > 13) {
+				EnergyPredictor.printError("Config file: invalid degree for Taylor/Chebyshev series!");
+			    }
+			}
+			if (line_fields.length > 3) {
+			    try {
+				seriesType = TrigTools.SeriesType.valueOf(line_fields[3].toUpperCase());
+			    } catch (IllegalArgumentException e) {
+				EnergyPredictor.printError("Config file: invalid series type!");
+			    }
+			    if (seriesType == TrigTools.SeriesType.CHEBYSHEV && seriesDegree > 0 && seriesDegree < 3) {
+				EnergyPredictor.printError("Config file: invalid degree for Taylor/Chebyshev series!");
+			    }
+			}
+			if (line_fields.length > 4) {
+			    try {
+				tableSize = Integer.parseInt(line_fields[4]);
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid table size!");
+			    }
+			    if (tableSize < 1) {
+				EnergyPredictor.printError("Config file: invalid table size!");
+			    }
+			}
+		    }
+		    if (predictorMode.equals("wep")) {
+			if (line_fields.length > 2) {
+			    try {
+				timeslotWindow = Integer.parseInt(line_fields[2]);
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid timeslot window!");
+			    }
+			    if (timeslotWindow < 1) {
+				EnergyPredictor.printError("Config file: invalid timeslot window!");
+			    }
+			}
+		    }
+		    if (predictorMode.equals("arma")) {
+			if (line_fields.length > 3) {
+			    String[] arCoefStr = line_fields[2].split(",");
+			    try {
+				arCoef = Arrays.stream(arCoefStr).mapToDouble(Double::parseDouble).toArray();
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid autoregressive parameter!");
+			    }	
+			    String[] maCoefStr = line_fields[3].split(",");
+			    try {
+				maCoef = Arrays.stream(maCoefStr).mapToDouble(Double::parseDouble).toArray();
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid moving average parameter!");
+			    }
+			}
+		    }
+		    if (predictorMode.equals("ewma")) {
+			analyzerMode = "average";
+			if (line_fields.length > 3) {
+			    try {
+				numPreviousDays = Integer.parseInt(line_fields[2]);
+				weightingFactor = Double.parseDouble(line_fields[3]);
+			    } catch (NumberFormatException e) {
+				EnergyPredictor.printError("Config file: invalid " + predictorMode + " predictor configuration!");
+			    }
+			    if (numPreviousDays <= 0) {
+				EnergyPredictor.printError("Config file: invalid number of previous trace files!");
+			    }
+			    if (weightingFactor < 0 || weightingFactor > 1) {
+				EnergyPredictor.printError("Config file: invalid weighting factor!");
+			    }
+			}
+		    }
+                }
+            }
+            configFile.close();
+        } catch (IOException e) {
+            EnergyPredictor.printError("Error while reading config file!");
+        }
+    }
+
+    /**
+     * Returns a copy of this configuration that can be modified independently.
+     *
+     * @return a copy of this configuration
+     */
+    public Configuration copy ()
+    {
+	Configuration config = null;
+	try {
+	    config = (Configuration) super.clone();
+	} catch (CloneNotSupportedException e) {
+	    throw new AssertionError(e);
+	}
+	config.arCoef = arCoef == null ? null : arCoef.clone();
+	config.maCoef = maCoef == null ? null : maCoef.clone();
+	return config;
+    }
+
+    /**
+     * Sets the value of the specified predictor parameter (using the names of the PREDICTOR line).
+     *
+     * @param  parameter the parameter name
+     * @param  value     the parameter value
+     * @throws IllegalArgumentException if the parameter or its value are not valid for the predictor mode
+     */
+    public void set (String parameter, double value)
+    {
+	boolean integer = !parameter.matches("alpha|g|(ar|ma)Coef[0-9]+");
+	if (integer && value != Math.rint(value)) {
+	    throw new IllegalArgumentException("invalid " + parameter + " value " + value);
+	}
+	if (parameter.equals("slotWindow") || parameter.equals("numPrevSlots")) {
+	    if (value < (predictorMode.equals("wep") ? 1 : 2)) {
+		throw new IllegalArgumentException("invalid timeslot window " + (int) value);
+	    }
+	    timeslotWindow = (int) value;
+	} else if (parameter.equals("numCombinedTraces") || (parameter.equals("numPrevDays") && predictorMode.matches("dwcma|udwcma"))) {
+	    if (value <= 0) {
+		throw new IllegalArgumentException("invalid number of trace files to combine " + (int) value);
+	    }
+	    combinedTraceFiles = (int) value;
+	    if (predictorMode.matches("dwcma|udwcma")) {
+		numPreviousDays = combinedTraceFiles;
+	    }
+	} else if (parameter.equals("numPrevDays")) {
+	    if (value < (predictorMode.equals("ewma") ? 1 : 0)) {
+		throw new IllegalArgumentException("invalid number of previous trace files " + (int) value);
+	    }
+	    numPreviousDays = (int) value;
+	} else if (parameter.equals("alpha")) {
+	    if (value < 0 || value > 1) {
+		throw new IllegalArgumentException("invalid weighting factor " + value);
+	    }
+	    weightingFactor = value;
+	} else if (parameter.equals("g")) {
+	    if (value < 0) {
+		throw new IllegalArgumentException("invalid correlation factor " + value);
+	    }
+	    correlationFactor = value;
+	} else if (parameter.equals("seriesDegree")) {
+	    if (value < 0 || value > 13 || (seriesType == TrigTools.SeriesType.CHEBYSHEV && value > 0 && value < 3)) {
+		throw new IllegalArgumentException("invalid degree for Taylor/Chebyshev series " + (int) value);
+	    }
+	    seriesDegree = (int) value;
+	} else if (parameter.matches("(ar|ma)Coef[0-9]+")) {
+	    double[] coef = parameter.startsWith("ar") ? arCoef : maCoef;
+	    int index = Integer.parseInt(parameter.substring(6)) - 1;
+	    if (coef == null || index < 0 || index >= coef.length) {
+		throw new IllegalArgumentException("invalid coefficient " + parameter);
+	    }
+	    coef[index] = value;
+	} else {
+	    throw new IllegalArgumentException("invalid parameter " + parameter);
+	}
+    }
+
+    /**
+     * Returns a new empty data list for the given trace, taking into account the type of traces.
+     *
+     * @param  label the label of the data list
+     * @param  date  the date on which the data were collected
+     * @return a new empty data list for the given trace
+     */
+    public DataList newDataList (String label, Date date)
+    {
+	return EnergyPredictor.solarTraces ?
+	    new SolarDataList(label, date, timeZone, latitude, longitude, ephemeris) : new DataList(label, date);
+    }
+}
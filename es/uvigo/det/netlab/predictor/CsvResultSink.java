@@ -0,0 +1,128 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * This class implements the result sink that writes the results as CSV rows. The first field of every row is
+ * the record type, followed by the values at full precision:
+ *
+ *   message,text
+ *   datalist,label,numEntries,energyHarvested
+ *   entry,timeslot,value,weight
+ *   solar,sunrise,sunset,noon
+ *   prediction,horizon,timeslot,actual,predicted,absError,perError
+ *   metrics,challenge,horizon,numValues,mae,mape,rmse,mase,madp
+ *
+ * Blank messages are not written. Text fields are quoted if they contain commas, quotes or line breaks.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class CsvResultSink implements ResultSink
+{
+    /**
+     * The size of the output buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The buffered output
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Creates a new CSV result sink.
+     *
+     * @param out the output stream
+     */
+    public CsvResultSink (OutputStream out)
+    {
+	writer = new BufferedWriter(new OutputStreamWriter(out), BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the given text as a CSV field.
+     */
+    private static String field (String text)
+    {
+	if (text == null) {
+	    return "";
+	}
+	if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+	    return text;
+	}
+	return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes a row.
+     */
+    private void row (String row)
+    {
+	try {
+	    writer.write(row);
+	    writer.write('\n');
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void message (String text)
+    {
+	if (!text.trim().isEmpty()) {
+	    row("message," + field(text.trim()));
+	}
+    }
+
+    public void dataList (String label, int numEntries, double energyHarvested)
+    {
+	row("datalist," + field(label) + "," + numEntries + "," + energyHarvested);
+    }
+
+    public void dataEntry (int timeslot, double value, double weight)
+    {
+	row("entry," + timeslot + "," + value + "," + weight);
+    }
+
+    public void endDataList ()
+    {
+    }
+
+    public void solarTimeslots (int sunrise, int sunset, int noon)
+    {
+	row("solar," + sunrise + "," + sunset + "," + noon);
+    }
+
+    public void prediction (int horizon, int timeslot, double actual, double predicted, double absError, double perError)
+    {
+	row("prediction," + horizon + "," + timeslot + "," + actual + "," + predicted + "," + absError + "," + perError);
+    }
+
+    public void errorMetrics (String challenge, ErrorMetrics metrics)
+    {
+	row("metrics," + field(challenge) + "," + metrics.getHorizon() + "," + metrics.getNumValues() + "," + metrics.getMae() + ","
+	    + metrics.getMape() + "," + metrics.getRmse() + "," + metrics.getMase() + "," + metrics.getMadp());
+    }
+
+    public void flush ()
+    {
+	try {
+	    writer.flush();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void close ()
+    {
+	try {
+	    writer.close();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+}
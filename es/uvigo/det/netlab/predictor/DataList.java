@@ -1,16 +1,19 @@
 package es.uvigo.det.netlab.predictor;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.io.*;
 
 /**
  * This class implements a list of data entries.
+ * Entries are stored in parallel primitive arrays (values, timeslots and weights).
  *
  * @author Sergio Herreria-Alonso 
  * @version 1.0
  */
-public class DataList
+public class DataList implements Cloneable
 {
     /**
      * The label of the data list
@@ -23,9 +26,44 @@ public class DataList
     private Date date;
     
     /**
-     * The data list
+     * The initial capacity of the data arrays
      */
-    private ArrayList<DataEntry> list;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The data values
+     */
+    private double[] values;
+
+    /**
+     * The data timeslots
+     */
+    private int[] timeslots;
+
+    /**
+     * The data weights
+     */
+    private double[] weights;
+
+    /**
+     * The number of data entries
+     */
+    private int size;
+
+    /**
+     * The timeslot step between consecutive data entries (0 if not uniform)
+     */
+    private int slotStep;
+
+    /**
+     * True if the data timeslots are in non-decreasing order
+     */
+    private boolean sortedSlots;
+
+    /**
+     * The energy harvested from timeslot 0 up to every data entry (built on demand, null if not built)
+     */
+    private volatile double[] cumulativeEnergy;
     
     /**
      * Creates a new data list.
@@ -37,9 +75,34 @@ public class DataList
     {
 	this.label = label;
 	this.date = date;
-	this.list = new ArrayList<DataEntry>();
+	this.values = new double[INITIAL_CAPACITY];
+	this.timeslots = new int[INITIAL_CAPACITY];
+	this.weights = new double[INITIAL_CAPACITY];
+	this.size = 0;
+	this.slotStep = 0;
+	this.sortedSlots = true;
     }
     
+    /**
+     * Returns a copy of this data list that can be modified independently.
+     *
+     * @return a copy of this data list
+     */
+    public DataList copy ()
+    {
+	DataList dataList = null;
+	try {
+	    dataList = (DataList) super.clone();
+	} catch (CloneNotSupportedException e) {
+	    throw new AssertionError(e);
+	}
+	dataList.values = values.clone();
+	dataList.timeslots = timeslots.clone();
+	dataList.weights = weights.clone();
+	dataList.cumulativeEnergy = null;
+	return dataList;
+    }
+
     /**
      * Returns the label of the data list.
      *
@@ -61,13 +124,23 @@ public class DataList
     }
     
     /**
-     * Returns the list of data entries in the data list.
+     * Returns a read-only view of the data entries in the data list.
      *
-     * @return the list of data entries in the data list
+     * @return a read-only view of the data entries in the data list
      */
-    public ArrayList<DataEntry> getList ()
+    public List<DataEntry> getList ()
     {
-	return list;
+	return new AbstractList<DataEntry>() {
+	    public DataEntry get (int index)
+	    {
+		return getEntryByIndex(index);
+	    }
+
+	    public int size ()
+	    {
+		return size;
+	    }
+	};
     }
       
     /**
@@ -78,7 +151,54 @@ public class DataList
      */
     public DataEntry getEntryByIndex (int index)
     {
-	return list.get(index);
+	checkIndex(index);
+	return new DataEntry(values[index], timeslots[index], weights[index]);
+    }
+
+    /**
+     * Returns the value of the data entry in the data list at the specified position.
+     *
+     * @param  index index of the data entry
+     * @return the value of the data entry in the data list at the specified position
+     */
+    public double getValue (int index)
+    {
+	checkIndex(index);
+	return values[index];
+    }
+
+    /**
+     * Returns the timeslot of the data entry in the data list at the specified position.
+     *
+     * @param  index index of the data entry
+     * @return the timeslot of the data entry in the data list at the specified position
+     */
+    public int getTimeslot (int index)
+    {
+	checkIndex(index);
+	return timeslots[index];
+    }
+
+    /**
+     * Returns the weight of the data entry in the data list at the specified position.
+     *
+     * @param  index index of the data entry
+     * @return the weight of the data entry in the data list at the specified position
+     */
+    public double getWeight (int index)
+    {
+	checkIndex(index);
+	return weights[index];
+    }
+
+    /**
+     * Throws an IndexOutOfBoundsException if the specified position is out of the data list.
+     */
+    private void checkIndex (int index)
+    {
+	if (index < 0 || index >= size) {
+	    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
     }
     
     /**
@@ -88,21 +208,34 @@ public class DataList
      * @return the data entry in the data list at the specified timeslot
      */
     public DataEntry getEntryByTimeslot (int timeslot)
+    {
+	int index = getIndexByTimeslot(timeslot);
+	if (index >= 0 && (timeslots[index] == timeslot || index == size - 1)) {
+	    return getEntryByIndex(index);
+	}
+	return new DataEntry(valueAt(timeslot), timeslot, 0);
+    }
+
+    /**
+     * Returns the data value in the data list at the specified timeslot.
+     * Values between data entries are obtained as in getEntryByTimeslot without allocating any entry.
+     *
+     * @param  timeslot the timeslot
+     * @return the data value in the data list at the specified timeslot
+     */
+    public double valueAt (int timeslot)
     {
 	int index = getIndexByTimeslot(timeslot);
 	if (index < 0) {
-	    return new DataEntry(0, timeslot, 0);
+	    return 0;
 	}
-	DataEntry entry = list.get(index);
-	int entryTimeslot = entry.getTimeslot();
-	if (entryTimeslot == timeslot || index == list.size() - 1) {
-	    return entry;
+	int entryTimeslot = timeslots[index];
+	if (entryTimeslot == timeslot || index == size - 1) {
+	    return values[index];
 	}
-	DataEntry nextEntry = list.get(index + 1);
-	double value = EnergyPredictor.energyTraces ?
-	    nextEntry.getValue() * (timeslot - entryTimeslot) / (nextEntry.getTimeslot() - entryTimeslot) :
-	    nextEntry.getValue();
-	return new DataEntry(value, timeslot, 0);
+	return EnergyPredictor.energyTraces ?
+	    values[index + 1] * (timeslot - entryTimeslot) / (timeslots[index + 1] - entryTimeslot) :
+	    values[index + 1];
     }
         
     /**
@@ -113,8 +246,35 @@ public class DataList
      */
     public int getIndexByTimeslot (int timeslot)
     {
-	for (int i = 0; i < list.size(); i++) {
-	    double entryTimeslot = list.get(i).getTimeslot();
+	if (size == 0) {
+	    return -1;
+	}
+	if (slotStep > 0) {
+	    // Uniform grid: direct arithmetic indexing
+	    if (timeslot <= timeslots[0]) {
+		return 0;
+	    }
+	    long index = ((long) timeslot - timeslots[0]) / slotStep;
+	    return index >= size ? size - 1 : (int) index;
+	}
+	if (sortedSlots) {
+	    // Non-uniform grid: binary search of the first entry not before the timeslot
+	    int low = 0, high = size;
+	    while (low < high) {
+		int mid = (low + high) >>> 1;
+		if (timeslots[mid] < timeslot) {
+		    low = mid + 1;
+		} else {
+		    high = mid;
+		}
+	    }
+	    if (low == size) {
+		return size - 1;
+	    }
+	    return timeslots[low] == timeslot || low == 0 ? low : low - 1;
+	}
+	for (int i = 0; i < size; i++) {
+	    double entryTimeslot = timeslots[i];
 	    if (entryTimeslot == timeslot) {
 		return i;
 	    } else if (entryTimeslot > timeslot) {
@@ -125,7 +285,7 @@ public class DataList
 		}
 	    }
 	}
-	return list.size() - 1;
+	return size - 1;
     }
     
     /**
@@ -135,7 +295,7 @@ public class DataList
      */
     public int size ()
     {
-	return list.size();
+	return size;
     }
     
     /**
@@ -148,15 +308,67 @@ public class DataList
     public boolean addEntry (double value, int timeslot)
     {
 	double weight = 0.0;
-	if (list.size() > 0) {
-	    DataEntry lastEntry = list.get(list.size() - 1);
-	    weight = Math.log(1 + Math.abs(value - lastEntry.getValue()) * (timeslot - lastEntry.getTimeslot()));
+	if (size > 0) {
+	    weight = Math.log(1 + Math.abs(value - values[size - 1]) * (timeslot - timeslots[size - 1]));
+	}
+	append(value, timeslot, weight);
+	return true;
+    }
+
+    /**
+     * Appends a new data entry to the data arrays, growing them if required.
+     */
+    private void append (double value, int timeslot, double weight)
+    {
+	if (size == values.length) {
+	    ensureCapacity(values.length * 2);
+	}
+	values[size] = value;
+	timeslots[size] = timeslot;
+	weights[size] = weight;
+	size++;
+	updateSlotGrid(size - 1);
+	cumulativeEnergy = null;
+    }
+
+    /**
+     * Grows the data arrays, if required, to hold at least the specified number of data entries.
+     *
+     * @param capacity the minimum number of data entries
+     */
+    void ensureCapacity (int capacity)
+    {
+	if (capacity > values.length) {
+	    values = Arrays.copyOf(values, capacity);
+	    timeslots = Arrays.copyOf(timeslots, capacity);
+	    weights = Arrays.copyOf(weights, capacity);
+	}
+    }
+
+    /**
+     * Updates the timeslot grid information with the data entry at the specified position.
+     */
+    private void updateSlotGrid (int index)
+    {
+	if (index == 0) {
+	    slotStep = 0;
+	    sortedSlots = true;
+	    return;
+	}
+	int diff = timeslots[index] - timeslots[index - 1];
+	if (diff < 0) {
+	    sortedSlots = false;
+	}
+	if (index == 1) {
+	    slotStep = diff > 0 ? diff : 0;
+	} else if (diff != slotStep) {
+	    slotStep = 0;
 	}
-	return list.add(new DataEntry(value, timeslot, weight));
     }
     
     /**
      * Adds the data stored in the specified trace file to the data list.
+     * Binary trace files (see BinaryTraceTools) are memory-mapped instead of parsed.
      * 
      * @param  traceFile the trace file
      * @param  slotStep  the timeslot step
@@ -164,20 +376,18 @@ public class DataList
      */
     public boolean addFile (File traceFile, int slotStep)
     {
+	if (BinaryTraceTools.isBinaryTrace(traceFile)) {
+	    return BinaryTraceTools.read(this, traceFile, slotStep);
+	}
 	int timeslot = slotStep;
-	try {
-	    BufferedReader traceReader = new BufferedReader(new FileReader(traceFile));
-	    try {
-		for (String data; (data = traceReader.readLine()) != null; ) {
-		    if (!addEntry(Double.parseDouble(data), timeslot)) {
-			return false;
-		    }
-		    timeslot += slotStep; 
+	try (BufferedReader traceReader = new BufferedReader(new FileReader(traceFile))) {
+	    for (String data; (data = traceReader.readLine()) != null; ) {
+		if (!addEntry(Double.parseDouble(data), timeslot)) {
+		    return false;
 		}
-	    } catch (IOException e) {
-		return false;
+		timeslot += slotStep; 
 	    }
-	} catch (FileNotFoundException e) {
+	} catch (IOException e) {
 	    return false;
 	}
 	return true;
@@ -189,53 +399,70 @@ public class DataList
     public void resize ()
     {
 	// Merge entries with very similar values
-	int size = list.size();
+	int size = this.size;
 	double sumWeight = 0.0;
-	DataEntry entry = list.get(0);
-	ArrayList<DataEntry> mergedList = new ArrayList<DataEntry>(size);
+	double[] mergedValues = new double[size];
+	int[] mergedTimeslots = new int[size];
+	double[] mergedWeights = new double[size];
+	int mergedSize = 0;
 	for (int i = 1; i < size - 1; i++) {
-	    entry = list.get(i);
-	    if (entry.getWeight() <= 0.001 && list.get(i + 1).getWeight() <= 0.001) {
+	    if (weights[i] <= 0.001 && weights[i + 1] <= 0.001) {
 		continue;
 	    } else {
-		if (mergedList.size() == 0) {
-		    mergedList.add(list.get(i - 1));
+		if (mergedSize == 0) {
+		    mergedValues[0] = values[i - 1];
+		    mergedTimeslots[0] = timeslots[i - 1];
+		    mergedWeights[0] = weights[i - 1];
+		    mergedSize++;
 		}
-		sumWeight += entry.getWeight();
-		mergedList.add(new DataEntry(entry.getValue(), entry.getTimeslot(), entry.getWeight()));
+		sumWeight += weights[i];
+		mergedValues[mergedSize] = values[i];
+		mergedTimeslots[mergedSize] = timeslots[i];
+		mergedWeights[mergedSize] = weights[i];
+		mergedSize++;
 	    }
 	}
-	entry = list.get(size - 1);
-	sumWeight += entry.getWeight();
-	mergedList.add(new DataEntry(entry.getValue(), entry.getTimeslot(), entry.getWeight()));
-	list = mergedList;
+	sumWeight += weights[size - 1];
+	mergedValues[mergedSize] = values[size - 1];
+	mergedTimeslots[mergedSize] = timeslots[size - 1];
+	mergedWeights[mergedSize] = weights[size - 1];
+	mergedSize++;
+	values = mergedValues;
+	timeslots = mergedTimeslots;
+	weights = mergedWeights;
+	this.size = mergedSize;
+	cumulativeEnergy = null;
+	for (int i = 0; i < mergedSize; i++) {
+	    updateSlotGrid(i);
+	}
 	// Split entries with very dissimilar values
-	int mergedSize = mergedList.size();
 	if (mergedSize < size) {
-	    ArrayList<DataEntry> resizedlist = new ArrayList<DataEntry>(size);
+	    values = new double[size];
+	    timeslots = new int[size];
+	    weights = new double[size];
+	    this.size = 0;
 	    for (int i = 0; i < mergedSize; i++) {
-		entry = mergedList.get(i);
-		double entryValue = entry.getValue();
-		int entryTimeslot = entry.getTimeslot();
-		double entryWeight = entry.getWeight();
+		double entryValue = mergedValues[i];
+		int entryTimeslot = mergedTimeslots[i];
+		double entryWeight = mergedWeights[i];
 		int subslots = (int) Math.floor((size - mergedSize) * entryWeight / sumWeight) + 1;
 		if (subslots > 1) {
-		    DataEntry prevEntry = mergedList.get(i - 1);
+		    double prevValue = mergedValues[i - 1];
+		    int prevTimeslot = mergedTimeslots[i - 1];
 		    double value = EnergyPredictor.energyTraces ? entryValue / subslots : entryValue;
-		    int slotStep = (entryTimeslot - prevEntry.getTimeslot()) / subslots;
+		    int slotStep = (entryTimeslot - prevTimeslot) / subslots;
 		    for (int j = 1; j <= subslots; j++) {
-			int timeslot = prevEntry.getTimeslot() + j * slotStep;
+			int timeslot = prevTimeslot + j * slotStep;
 			if (j == subslots && timeslot < entryTimeslot) {
 			    timeslot = entryTimeslot;
 			}
-			entryWeight = j == 1 ? Math.log(1 + Math.abs(value - prevEntry.getValue()) * slotStep) : 0.0;
-			resizedlist.add(new DataEntry(value, timeslot, entryWeight));
+			entryWeight = j == 1 ? Math.log(1 + Math.abs(value - prevValue) * slotStep) : 0.0;
+			append(value, timeslot, entryWeight);
 		    }
 		} else {
-		    resizedlist.add(new DataEntry(entryValue, entryTimeslot, entryWeight));
+		    append(entryValue, entryTimeslot, entryWeight);
 		}
 	    }
-	    list = resizedlist;
 	}
     }
     
@@ -248,14 +475,13 @@ public class DataList
     {
 	int index = 0;
 	double max = -Double.MAX_VALUE;
-	for (int i = 0; i < list.size(); i++) {
-	    double value = list.get(i).getValue();
-	    if (value > max) {
-		max = value;
+	for (int i = 0; i < size; i++) {
+	    if (values[i] > max) {
+		max = values[i];
 		index = i;
 	    }
 	}
-	return list.get(index);
+	return getEntryByIndex(index);
     }
     
     /**
@@ -265,30 +491,98 @@ public class DataList
      */
     public double getEnergyHarvested ()
     {
-	int lastEntryTimeslot = getEntryByIndex(size() - 1).getTimeslot();
+	int lastEntryTimeslot = getTimeslot(size - 1);
 	double powerFactor = EnergyPredictor.energyTraces ? 1.0 : EnergyPredictor.SECONDS_PER_DAY / (double) lastEntryTimeslot;
 	return getEnergyHarvested(0, lastEntryTimeslot, powerFactor);
     }
     
     /**
-     * Returns the energy harvested between two given timeslots of the data list
+     * Returns the energy harvested between two given timeslots of the data list.
+     * The energy of the whole data entries is obtained from the cumulative energy, so only the
+     * fractions of the first and last data entries outside the timeslots are computed.
      *
+     * @param  initialTimeslot the initial timeslot
+     * @param  finalTimeslot   the final timeslot
+     * @param  powerFactor     the factor used to convert power values into energy values
      * @return Returns the energy harvested between two given timeslots of the data list
+     * @throws IndexOutOfBoundsException if the data list does not reach the final timeslot
      */
     public double getEnergyHarvested (int initialTimeslot, int finalTimeslot, double powerFactor)
+    {
+	if (finalTimeslot <= initialTimeslot) {
+	    return 0.0;
+	}
+	if (!sortedSlots) {
+	    return walkEnergyHarvested(initialTimeslot, finalTimeslot, powerFactor);
+	}
+	int index = initialTimeslot == 0 ? -1 : getIndexByTimeslot(initialTimeslot);
+	int prevTimeslot = index < 0 ? 0 : timeslots[index];
+	if (prevTimeslot >= finalTimeslot) {
+	    return 0.0;
+	}
+	int lastIndex = getIndexByTimeslot(finalTimeslot);
+	if (timeslots[lastIndex] < finalTimeslot) {
+	    lastIndex++;
+	}
+	checkIndex(lastIndex);
+	double[] cumulative = cumulativeEnergy();
+	double energy = cumulative[lastIndex] - (index < 0 ? 0.0 : cumulative[index]);
+	if (prevTimeslot < initialTimeslot) {
+	    double currValue = values[index + 1];
+	    int currTimeslot = timeslots[index + 1];
+	    energy -= EnergyPredictor.energyTraces ?
+		currValue * (initialTimeslot - prevTimeslot) / (currTimeslot - prevTimeslot) :
+		currValue * (initialTimeslot - prevTimeslot);
+	}
+	int lastTimeslot = timeslots[lastIndex];
+	if (lastTimeslot > finalTimeslot) {
+	    double lastValue = values[lastIndex];
+	    int beforeTimeslot = lastIndex == 0 ? 0 : timeslots[lastIndex - 1];
+	    energy -= EnergyPredictor.energyTraces ?
+		lastValue * (lastTimeslot - finalTimeslot) / (lastTimeslot - beforeTimeslot) :
+		lastValue * (lastTimeslot - finalTimeslot);
+	}
+	energy *= powerFactor;
+	return energy;
+    }
+
+    /**
+     * Returns the energy harvested from timeslot 0 up to every data entry, building it if required.
+     */
+    private double[] cumulativeEnergy ()
+    {
+	double[] cumulative = cumulativeEnergy;
+	if (cumulative == null) {
+	    boolean energyTraces = EnergyPredictor.energyTraces;
+	    cumulative = new double[size];
+	    double energy = 0.0;
+	    int prevTimeslot = 0;
+	    for (int i = 0; i < size; i++) {
+		energy += energyTraces ? values[i] : values[i] * (timeslots[i] - prevTimeslot);
+		cumulative[i] = energy;
+		prevTimeslot = timeslots[i];
+	    }
+	    cumulativeEnergy = cumulative;
+	}
+	return cumulative;
+    }
+
+    /**
+     * Returns the energy harvested between two given timeslots walking through the data entries
+     * (used when the data timeslots are not sorted).
+     */
+    private double walkEnergyHarvested (int initialTimeslot, int finalTimeslot, double powerFactor)
     {
 	if (finalTimeslot <= initialTimeslot) {
 	    return 0.0;
 	}
 	int index = initialTimeslot == 0 ? -1 : getIndexByTimeslot(initialTimeslot);
-	DataEntry currEntry, prevEntry = initialTimeslot == 0 ? null : getEntryByIndex(index);
-	double currValue, prevValue = initialTimeslot == 0 ? 0 : prevEntry.getValue();
-	int currTimeslot, prevTimeslot = initialTimeslot == 0 ? 0 : prevEntry.getTimeslot();
+	double currValue, prevValue = initialTimeslot == 0 ? 0 : getValue(index);
+	int currTimeslot, prevTimeslot = initialTimeslot == 0 ? 0 : getTimeslot(index);
 	double energy = 0.0;
 	while (prevTimeslot < finalTimeslot) {
-	    currEntry = getEntryByIndex(index + 1);
-	    currValue = currEntry.getValue();
-	    currTimeslot = currEntry.getTimeslot();
+	    currValue = getValue(index + 1);
+	    currTimeslot = getTimeslot(index + 1);
 	    if (prevTimeslot < initialTimeslot) {
 		energy -= EnergyPredictor.energyTraces ?
 		    currValue * (initialTimeslot - prevTimeslot) / (currTimeslot - prevTimeslot) :
@@ -313,12 +607,22 @@ public class DataList
      */
     public void print ()
     {
-	System.out.println();
-	System.out.println("DataList: " + label + " Data entries: " + list.size() + " Energy harvested: " + getEnergyHarvested());
-	System.out.println();
-	for (DataEntry entry : list) {
-	    entry.print();
+	ResultSink sink = new TextResultSink(System.out);
+	print(sink);
+	sink.flush();
+    }
+
+    /**
+     * Writes the data entries in the data list to the given result sink.
+     *
+     * @param sink the result sink
+     */
+    public void print (ResultSink sink)
+    {
+	sink.dataList(label, size, getEnergyHarvested());
+	for (int i = 0; i < size; i++) {
+	    sink.dataEntry(getTimeslot(i), getValue(i), getWeight(i));
 	}
-	System.out.println();
+	sink.endDataList();
     }
 }
@@ -20,14 +20,16 @@ public class DumbPredictorModule extends PredictorModule
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param  initEntry the initial data entry
-     * @param  pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param  initTimeslot the initial timeslot
+     * @param  initValue    the data value at the initial timeslot
+     * @param  pastTimeslot the past timeslot
+     * @param  pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
-	return initEntry.getValue();
+	return initValue;
     } 
 }
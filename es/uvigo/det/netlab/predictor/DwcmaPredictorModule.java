@@ -16,7 +16,7 @@ public class DwcmaPredictorModule extends PredictorModule
     /**
      * The GAP factor
      */
-    private double gap;
+    private GapFactor gap;
     
     /**
      * Creates a new D-WCMA predictor module.
@@ -31,29 +31,55 @@ public class DwcmaPredictorModule extends PredictorModule
     {
 	super(currentData, pastData);
 	alphaFactorList = factorList;
-	// GAP factor computation
-	double sumGap = 0.0;
-	int initIndex = currentData.getIndexByTimeslot(initSlot);
-	for (int i = 1; i <= slotWindow; i++) {
-	    double pastValue = pastData.getEntryByIndex(initIndex - slotWindow + i).getValue();
-	    if (pastValue == 0) {
-		continue;
-	    }
-	    sumGap += i * currentData.getEntryByIndex(initIndex - slotWindow + i).getValue() / pastValue;
-	}
-	gap = 2 * sumGap / slotWindow / (slotWindow + 1);
+	gap = new GapFactor(currentData, pastData, initSlot, slotWindow);
+    }
+
+    /**
+     * Prepares the predictor module for a new initial timeslot, moving the window of the GAP factor forward.
+     *
+     * @param pastData the data list with past observations for the new initial timeslot
+     * @param initSlot the new initial timeslot
+     */
+    public void reset (DataList pastData, int initSlot)
+    {
+	super.reset(pastData, initSlot);
+	gap.advance(currentData, pastData, initSlot);
+    }
+
+    /**
+     * Slides the window of the GAP factor forward once a new sample has been appended (streaming mode).
+     *
+     * @param index the index of the new sample in the current data
+     */
+    protected void update (int index)
+    {
+	gap.add(currentData.getValue(index), pastData.getValue(index));
+    }
+
+    /**
+     * Sets the data list with the alpha weighting factors used for predictions. Called by the reset factory
+     * of PredictorRegistry after every reset, both in batch mode (Simulation) and in streaming mode
+     * (StreamingPredictor).
+     *
+     * @param factorList the data list with the alpha weighting factors
+     */
+    void setFactorList (DataList factorList)
+    {
+	alphaFactorList = factorList;
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param initEntry the initial data entry
-     * @param pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initTimeslot the initial timeslot
+     * @param initValue    the data value at the initial timeslot
+     * @param pastTimeslot the past timeslot
+     * @param pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
-	double alpha = alphaFactorList.getEntryByTimeslot(pastEntry.getTimeslot()).getValue();
-	return alpha * initEntry.getValue() + (1 - alpha) * gap * pastEntry.getValue();
+	double alpha = alphaFactorList.valueAt(pastTimeslot);
+	return alpha * initValue + (1 - alpha) * gap.value() * pastValue;
     } 
 }
@@ -0,0 +1,263 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class implements a cache of sunrise and sunset times (ephemeris) keyed by location and day.
+ *
+ * Sunrise and sunset times are computed once per (latitude, longitude, day) with SolarTools, or obtained from a
+ * sunrise and sunset cache of the sunrise-sunset.org API, and stored as UTC instants. The configuration holds the
+ * ephemeris and passes it to its solar data lists, so that every solar data list of the same site and day
+ * (challenge and pool traces, sweep and backtest runs) shares them. The sunrise, sunset and noon timeslots are then derived for any time zone and timeslot
+ * resolution without allocating calendars. The cache may be preloaded from a per-site yearly table on disk and
+ * can be queried concurrently.
+ *
+ * Usage (table generation): java es.uvigo.det.netlab.predictor.Ephemeris LATITUDE LONGITUDE YEAR FILE
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class Ephemeris
+{
+    /**
+     * This class represents the key of a cached day: location and local day (yyyyMMdd).
+     */
+    private static final class DayKey
+    {
+	private final double latitude;
+	private final double longitude;
+	private final int day;
+
+	DayKey (double latitude, double longitude, int day)
+	{
+	    this.latitude = latitude;
+	    this.longitude = longitude;
+	    this.day = day;
+	}
+
+	public boolean equals (Object o)
+	{
+	    if (!(o instanceof DayKey)) {
+		return false;
+	    }
+	    DayKey key = (DayKey) o;
+	    return day == key.day && Double.compare(latitude, key.latitude) == 0 && Double.compare(longitude, key.longitude) == 0;
+	}
+
+	public int hashCode ()
+	{
+	    return 31 * (31 * Double.hashCode(latitude) + Double.hashCode(longitude)) + day;
+	}
+    }
+
+    /**
+     * The sunrise and sunset instants (milliseconds since the epoch) of every cached day
+     */
+    private final Map<DayKey, long[]> days = new ConcurrentHashMap<DayKey, long[]>();
+
+    /**
+     * The time zones used to convert instants into timeslots
+     */
+    private static final Map<String, TimeZone> timeZones = new ConcurrentHashMap<String, TimeZone>();
+
+    /**
+     * The cache of sunrise and sunset times obtained from the sunrise-sunset.org API (analytic times if null)
+     */
+    private final SunriseSunsetCache sunriseSunsetCache;
+
+    /**
+     * Creates a new empty ephemeris.
+     *
+     * @param cache the cache used to obtain the sunrise and sunset times from the sunrise-sunset.org API
+     *              (null for the analytic times)
+     */
+    public Ephemeris (SunriseSunsetCache cache)
+    {
+	sunriseSunsetCache = cache;
+    }
+
+    /**
+     * Returns a new ephemeris with the days of this one that obtains the missing days from the given cache.
+     *
+     * @param  cache the cache used to obtain the sunrise and sunset times from the sunrise-sunset.org API
+     *               (null for the analytic times)
+     * @return a new ephemeris with the days of this one that obtains the missing days from the given cache
+     */
+    public Ephemeris withSunriseSunsetCache (SunriseSunsetCache cache)
+    {
+	Ephemeris ephemeris = new Ephemeris(cache);
+	ephemeris.days.putAll(days);
+	return ephemeris;
+    }
+
+    /**
+     * Returns the local day (yyyyMMdd) of the given date, as used by SolarTools to compute sunrise and sunset times.
+     */
+    static int day (Date date)
+    {
+	LocalDate localDate = LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+	return localDate.getYear() * 10000 + localDate.getMonthValue() * 100 + localDate.getDayOfMonth();
+    }
+
+    /**
+     * Returns the sunrise and sunset instants (milliseconds since the epoch) for the given date and location.
+     *
+     * @param  date      the date
+     * @param  latitude  the latitude in decimal degrees
+     * @param  longitude the longitude in decimal degrees
+     * @return an array of length 2 with the sunrise and sunset instants
+     */
+    public long[] sunriseSunsetInstants (Date date, double latitude, double longitude)
+    {
+	DayKey key = new DayKey(latitude, longitude, day(date));
+	long[] instants = days.get(key);
+	if (instants != null) {
+	    return instants;
+	}
+	// Not computed inside the map, since an HTTP request may block
+	Date[] sunriseSunsetDates = sunriseSunsetCache != null ? sunriseSunsetCache.sunriseSunsetTimes(date, latitude, longitude) :
+	    SolarTools.sunriseSunsetTimes(date, latitude, longitude);
+	instants = new long[] {sunriseSunsetDates[0].getTime(), sunriseSunsetDates[1].getTime()};
+	long[] previous = days.putIfAbsent(key, instants);
+	return previous != null ? previous : instants;
+    }
+
+    /**
+     * Requests concurrently the sunrise and sunset times of the given days from the sunrise-sunset.org API,
+     * if a sunrise and sunset cache is set.
+     *
+     * @param dates     the dates
+     * @param latitude  the latitude in decimal degrees
+     * @param longitude the longitude in decimal degrees
+     */
+    public void prefetch (List<Date> dates, double latitude, double longitude)
+    {
+	if (sunriseSunsetCache != null) {
+	    sunriseSunsetCache.prefetch(dates, latitude, longitude);
+	}
+    }
+
+    /**
+     * Returns the sunrise, sunset and noon timeslots for the given date and location.
+     *
+     * @param  date         the date
+     * @param  latitude     the latitude in decimal degrees
+     * @param  longitude    the longitude in decimal degrees
+     * @param  timeZone     the time zone of the location
+     * @param  dayTimeslot  the timeslot corresponding to the end of the day (timeslot resolution)
+     * @return an array of length 3 with the sunrise, sunset and noon timeslots
+     */
+    public int[] timeslots (Date date, double latitude, double longitude, String timeZone, int dayTimeslot)
+    {
+	long[] instants = sunriseSunsetInstants(date, latitude, longitude);
+	TimeZone tz = timeZones.computeIfAbsent(timeZone, TimeZone::getTimeZone);
+	int sunriseSlot = toTimeslot(instants[0], tz, dayTimeslot);
+	int sunsetSlot = toTimeslot(instants[1], tz, dayTimeslot);
+	return new int[] {sunriseSlot, sunsetSlot, (sunriseSlot + sunsetSlot) / 2};
+    }
+
+    /**
+     * Returns the timeslot corresponding to the local time of the given instant.
+     */
+    private static int toTimeslot (long instant, TimeZone tz, int dayTimeslot)
+    {
+	long millisPerDay = EnergyPredictor.SECONDS_PER_DAY * 1000L;
+	int seconds = (int) (Math.floorMod(instant + tz.getOffset(instant), millisPerDay) / 1000);
+	return seconds * dayTimeslot / EnergyPredictor.SECONDS_PER_DAY;
+    }
+
+    /**
+     * Loads a yearly ephemeris table into this ephemeris.
+     *
+     * @param  file the table file
+     * @throws IOException if the table cannot be read or is not valid
+     */
+    public void loadTable (File file) throws IOException
+    {
+	try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+	    String line = reader.readLine();
+	    String[] fields = line == null ? new String[0] : line.trim().split("\\s+");
+	    if (fields.length != 3 || !fields[0].equals("LOCATION")) {
+		throw new IOException("invalid ephemeris table " + file.getPath());
+	    }
+	    try {
+		double latitude = Double.parseDouble(fields[1]);
+		double longitude = Double.parseDouble(fields[2]);
+		while ((line = reader.readLine()) != null) {
+		    fields = line.trim().split("\\s+");
+		    if (fields.length != 3) {
+			continue;
+		    }
+		    long[] instants = {Long.parseLong(fields[1]), Long.parseLong(fields[2])};
+		    days.put(new DayKey(latitude, longitude, Integer.parseInt(fields[0])), instants);
+		}
+	    } catch (NumberFormatException e) {
+		throw new IOException("invalid ephemeris table " + file.getPath());
+	    }
+	}
+    }
+
+    /**
+     * Writes the ephemeris table of the given location and year.
+     *
+     * @param  file      the table file
+     * @param  latitude  the latitude in decimal degrees
+     * @param  longitude the longitude in decimal degrees
+     * @param  year      the year
+     * @throws IOException if the table cannot be written
+     */
+    public void writeTable (File file, double latitude, double longitude, int year) throws IOException
+    {
+	Calendar calendar = Calendar.getInstance();
+	calendar.clear();
+	calendar.set(year, Calendar.JANUARY, 1);
+	try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+	    writer.write("LOCATION " + latitude + " " + longitude + "\n");
+	    while (calendar.get(Calendar.YEAR) == year) {
+		Date date = calendar.getTime();
+		long[] instants = sunriseSunsetInstants(date, latitude, longitude);
+		writer.write(day(date) + " " + instants[0] + " " + instants[1] + "\n");
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+	    }
+	}
+    }
+
+    /**
+     * Main method
+     */
+    public static void main (String[] args)
+    {
+	String usage = "Usage: java Ephemeris LATITUDE LONGITUDE YEAR FILE";
+	if (args.length < 4) {
+	    EnergyPredictor.printError(usage);
+	}
+	double latitude = 0;
+	double longitude = 0;
+	int year = 0;
+	try {
+	    latitude = Double.parseDouble(args[0]);
+	    longitude = Double.parseDouble(args[1]);
+	    year = Integer.parseInt(args[2]);
+	} catch (NumberFormatException e) {
+	    EnergyPredictor.printError("Invalid location or year!\n\n" + usage);
+	}
+	try {
+	    new Ephemeris(null).writeTable(new File(args[3]), latitude, longitude, year);
+	} catch (IOException e) {
+	    EnergyPredictor.printError("Cannot write ephemeris table " + args[3] + "!");
+	}
+    }
+}
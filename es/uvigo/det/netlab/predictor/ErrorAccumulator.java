@@ -0,0 +1,191 @@
+package es.uvigo.det.netlab.predictor;
+
+/**
+ * This class implements the running sums of the error measures (MAE, MAPE, RMSE, MASE and MADP) of the
+ * predictions for a given horizon. Every observation is added in constant time, so the error measures can
+ * be obtained without keeping the predictions.
+ *
+ * Accumulators of independent series (e.g. the results of other days, sites or threads) can be merged in any
+ * grouping. An accumulator is not thread-safe: every thread should fill its own accumulator and merge them
+ * afterwards.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public class ErrorAccumulator
+{
+    /**
+     * The prediction horizon
+     */
+    private int horizon;
+
+    /**
+     * The number of predictions
+     */
+    private int numValues;
+
+    /**
+     * The number of independent series
+     */
+    private int numSeries;
+
+    /**
+     * The sum of the absolute errors (MAE, MASE and MADP)
+     */
+    private double sumAbsError;
+
+    /**
+     * The sum of the squared absolute errors (RMSE)
+     */
+    private double sumSquaredAbsError;
+
+    /**
+     * The sum of the percentage errors above the threshold (MAPE)
+     */
+    private double sumPerError;
+
+    /**
+     * The number of percentage errors above the threshold (MAPE)
+     */
+    private int numMapeValues;
+
+    /**
+     * The sum of the actual values (MADP)
+     */
+    private double sumChallengeValue;
+
+    /**
+     * The sum of the absolute changes between consecutive actual values (MASE)
+     */
+    private double sumDiffChallengeValue;
+
+    /**
+     * The last actual value of the current series (-1 if the next prediction starts a new series)
+     */
+    private double lastChallengeValue = -1.0;
+
+    /**
+     * Creates a new empty accumulator.
+     *
+     * @param horizon the prediction horizon
+     */
+    public ErrorAccumulator (int horizon)
+    {
+	this.horizon = horizon;
+    }
+
+    /**
+     * Returns the prediction horizon.
+     *
+     * @return the prediction horizon
+     */
+    public int getHorizon ()
+    {
+	return horizon;
+    }
+
+    /**
+     * Returns the number of predictions.
+     *
+     * @return the number of predictions
+     */
+    public int getNumValues ()
+    {
+	return numValues;
+    }
+
+    /**
+     * Returns true if the error of every accumulated prediction is defined (finite).
+     *
+     * @return true if the error of every accumulated prediction is defined
+     */
+    public boolean isDefined ()
+    {
+	return Double.isFinite(sumAbsError);
+    }
+
+    /**
+     * Returns the absolute error of a prediction.
+     *
+     * @param  challengeValue  the actual value
+     * @param  predictionValue the predicted value
+     * @return the absolute error of the prediction
+     */
+    public static double absError (double challengeValue, double predictionValue)
+    {
+	return Math.abs(challengeValue - predictionValue);
+    }
+
+    /**
+     * Returns the percentage error of a prediction (0 if the actual value is not positive).
+     *
+     * @param  challengeValue  the actual value
+     * @param  predictionValue the predicted value
+     * @return the percentage error of the prediction
+     */
+    public static double perError (double challengeValue, double predictionValue)
+    {
+	return challengeValue > 0 ? absError(challengeValue, predictionValue) * 100 / challengeValue : 0;
+    }
+
+    /**
+     * Adds a prediction that follows the previous ones of the current series.
+     *
+     * @param challengeValue     the actual value
+     * @param predictionValue    the predicted value
+     * @param mapeValueThreshold the actual values not above this threshold are excluded from the MAPE
+     */
+    public void add (double challengeValue, double predictionValue, double mapeValueThreshold)
+    {
+	double absError = absError(challengeValue, predictionValue);
+	numValues++;
+	sumChallengeValue += challengeValue;
+	sumAbsError += absError;
+	sumSquaredAbsError += absError * absError;
+	if (challengeValue > mapeValueThreshold) {
+	    sumPerError += perError(challengeValue, predictionValue);
+	    numMapeValues++;
+	}
+	if (lastChallengeValue >= 0) {
+	    sumDiffChallengeValue += Math.abs(challengeValue - lastChallengeValue);
+	} else {
+	    numSeries++;
+	}
+	lastChallengeValue = challengeValue;
+    }
+
+    /**
+     * Adds the sums of the given accumulator, whose series are independent of the ones of this accumulator.
+     * The next prediction added to this accumulator starts a new series.
+     *
+     * @param  other the accumulator to be merged
+     * @return this accumulator
+     */
+    public ErrorAccumulator merge (ErrorAccumulator other)
+    {
+	lastChallengeValue = -1.0;
+	numSeries += other.numSeries;
+	numValues += other.numValues;
+	sumAbsError += other.sumAbsError;
+	sumSquaredAbsError += other.sumSquaredAbsError;
+	sumPerError += other.sumPerError;
+	numMapeValues += other.numMapeValues;
+	sumChallengeValue += other.sumChallengeValue;
+	sumDiffChallengeValue += other.sumDiffChallengeValue;
+	return this;
+    }
+
+    /**
+     * Returns the error measures of the accumulated predictions (the MASE scales the MAE by the mean
+     * absolute change between consecutive actual values within every series).
+     *
+     * @return the error measures of the accumulated predictions
+     */
+    public ErrorMetrics getMetrics ()
+    {
+	return new ErrorMetrics(horizon, numValues, sumAbsError / numValues, sumPerError / numMapeValues,
+				Math.sqrt(sumSquaredAbsError / numValues),
+				sumAbsError * (numValues - numSeries) / numValues / sumDiffChallengeValue,
+				sumAbsError * 100 / sumChallengeValue);
+    }
+}
@@ -0,0 +1,180 @@
+package es.uvigo.det.netlab.predictor;
+
+/**
+ * This class implements the error measures (MAE, MAPE, RMSE, MASE and MADP) of the predictions for a given horizon.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public class ErrorMetrics
+{
+    /**
+     * The prediction horizon
+     */
+    private int horizon;
+
+    /**
+     * The number of predictions
+     */
+    private int numValues;
+
+    /**
+     * The mean absolute error
+     */
+    private double mae;
+
+    /**
+     * The mean absolute percentage error
+     */
+    private double mape;
+
+    /**
+     * The root mean squared error
+     */
+    private double rmse;
+
+    /**
+     * The mean absolute scaled error
+     */
+    private double mase;
+
+    /**
+     * The mean absolute deviation percentage
+     */
+    private double madp;
+
+    /**
+     * Creates new error measures.
+     *
+     * @param horizon   the prediction horizon
+     * @param numValues the number of predictions
+     * @param mae       the mean absolute error
+     * @param mape      the mean absolute percentage error
+     * @param rmse      the root mean squared error
+     * @param mase      the mean absolute scaled error
+     * @param madp      the mean absolute deviation percentage
+     */
+    public ErrorMetrics (int horizon, int numValues, double mae, double mape, double rmse, double mase, double madp)
+    {
+	this.horizon = horizon;
+	this.numValues = numValues;
+	this.mae = mae;
+	this.mape = mape;
+	this.rmse = rmse;
+	this.mase = mase;
+	this.madp = madp;
+    }
+
+    /**
+     * Returns the prediction horizon.
+     *
+     * @return the prediction horizon
+     */
+    public int getHorizon ()
+    {
+	return horizon;
+    }
+
+    /**
+     * Returns the number of predictions.
+     *
+     * @return the number of predictions
+     */
+    public int getNumValues ()
+    {
+	return numValues;
+    }
+
+    /**
+     * Returns the mean absolute error.
+     *
+     * @return the mean absolute error
+     */
+    public double getMae ()
+    {
+	return mae;
+    }
+
+    /**
+     * Returns the mean absolute percentage error.
+     *
+     * @return the mean absolute percentage error
+     */
+    public double getMape ()
+    {
+	return mape;
+    }
+
+    /**
+     * Returns the root mean squared error.
+     *
+     * @return the root mean squared error
+     */
+    public double getRmse ()
+    {
+	return rmse;
+    }
+
+    /**
+     * Returns the mean absolute scaled error.
+     *
+     * @return the mean absolute scaled error
+     */
+    public double getMase ()
+    {
+	return mase;
+    }
+
+    /**
+     * Returns the mean absolute deviation percentage.
+     *
+     * @return the mean absolute deviation percentage
+     */
+    public double getMadp ()
+    {
+	return madp;
+    }
+
+    /**
+     * Returns the specified error measure.
+     *
+     * @param  metric the error measure name (mae, mape, rmse, mase or madp)
+     * @return the specified error measure
+     * @throws IllegalArgumentException if the error measure name is not valid
+     */
+    public double get (String metric)
+    {
+	if (metric.equals("mae")) {
+	    return mae;
+	} else if (metric.equals("mape")) {
+	    return mape;
+	} else if (metric.equals("rmse")) {
+	    return rmse;
+	} else if (metric.equals("mase")) {
+	    return mase;
+	} else if (metric.equals("madp")) {
+	    return madp;
+	}
+	throw new IllegalArgumentException("invalid error measure " + metric);
+    }
+
+    /**
+     * Prints on standard output the error measures.
+     */
+    public void print ()
+    {
+	ResultSink sink = new TextResultSink(System.out);
+	print(sink);
+	sink.flush();
+    }
+
+    /**
+     * Writes the error measures to the given result sink.
+     *
+     * @param sink the result sink
+     */
+    public void print (ResultSink sink)
+    {
+	sink.errorMetrics(null, this);
+    }
+}
@@ -0,0 +1,143 @@
+package es.uvigo.det.netlab.predictor;
+
+/**
+ * This class implements the GAP factor of the D-WCMA and UD-WCMA predictors: the weighted average of the
+ * ratios between current and past data values in the window of past timeslots (the most recent ratio has
+ * the highest weight).
+ *
+ * The ratios are kept in a circular buffer together with their plain and weighted sums, so that sliding the
+ * window forward one timeslot costs O(1) (streaming mode and predictors reused across timeslots).
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+final class GapFactor
+{
+    /**
+     * The number of past timeslots used to compute the GAP factor
+     */
+    private final int slotWindow;
+
+    /**
+     * The data list with past observations the window was computed with
+     */
+    private DataList pastData;
+
+    /**
+     * The index of the last timeslot in the window
+     */
+    private int lastIndex;
+
+    /**
+     * The number of timeslots the window has slid since the GAP factor was last computed from scratch
+     */
+    private int numSlides;
+
+    /**
+     * The ratios in the window (circular buffer)
+     */
+    private final double[] ratios;
+
+    /**
+     * The position of the oldest ratio in the window
+     */
+    private int oldest;
+
+    /**
+     * The sum of the ratios in the window
+     */
+    private double sumRatios;
+
+    /**
+     * The sum of the ratios in the window weighted by their position (1 for the oldest one)
+     */
+    private double sumWeightedRatios;
+
+    /**
+     * Creates the GAP factor for the window of past timeslots ending at the given timeslot.
+     *
+     * @param currentData the data list with current observations
+     * @param pastData    the data list with past observations
+     * @param initSlot    initial timeslot
+     * @param slotWindow  number of past timeslots used to compute the GAP factor
+     */
+    GapFactor (DataList currentData, DataList pastData, int initSlot, int slotWindow)
+    {
+	this.slotWindow = slotWindow;
+	ratios = new double[slotWindow];
+	compute(currentData, pastData, currentData.getIndexByTimeslot(initSlot));
+    }
+
+    /**
+     * Computes the GAP factor from scratch for the window ending at the given index.
+     */
+    private void compute (DataList currentData, DataList pastData, int initIndex)
+    {
+	this.pastData = pastData;
+	lastIndex = initIndex;
+	numSlides = 0;
+	oldest = 0;
+	sumRatios = 0.0;
+	sumWeightedRatios = 0.0;
+	for (int i = 1; i <= slotWindow; i++) {
+	    ratios[i - 1] = 0.0;
+	    double pastValue = pastData.getValue(initIndex - slotWindow + i);
+	    if (pastValue == 0) {
+		continue;
+	    }
+	    double currentValue = currentData.getValue(initIndex - slotWindow + i);
+	    ratios[i - 1] = currentValue / pastValue;
+	    sumRatios += ratios[i - 1];
+	    sumWeightedRatios += i * currentValue / pastValue;
+	}
+    }
+
+    /**
+     * Moves the window forward to the given timeslot, sliding it if it overlaps the current one and computing it
+     * from scratch otherwise (or once it has slid a whole window, so that rounding errors do not accumulate).
+     * The window is also computed from scratch if the data list with past observations is not the one the
+     * window was computed with, as the ratios in the window no longer hold.
+     *
+     * @param currentData the data list with current observations
+     * @param pastData    the data list with past observations
+     * @param initSlot    initial timeslot
+     */
+    void advance (DataList currentData, DataList pastData, int initSlot)
+    {
+	int initIndex = currentData.getIndexByTimeslot(initSlot);
+	if (pastData != this.pastData || initIndex < lastIndex || numSlides + initIndex - lastIndex >= slotWindow) {
+	    compute(currentData, pastData, initIndex);
+	    return;
+	}
+	while (lastIndex < initIndex) {
+	    add(currentData.getValue(lastIndex + 1), pastData.getValue(lastIndex + 1));
+	}
+    }
+
+    /**
+     * Slides the window forward one timeslot.
+     *
+     * @param currentValue the current data value at the new timeslot
+     * @param pastValue    the past data value at the new timeslot
+     */
+    void add (double currentValue, double pastValue)
+    {
+	double ratio = pastValue == 0 ? 0.0 : currentValue / pastValue;
+	sumWeightedRatios += slotWindow * ratio - sumRatios;
+	sumRatios += ratio - ratios[oldest];
+	ratios[oldest] = ratio;
+	oldest = (oldest + 1) % slotWindow;
+	lastIndex++;
+	numSlides++;
+    }
+
+    /**
+     * Returns the GAP factor.
+     *
+     * @return the GAP factor
+     */
+    double value ()
+    {
+	return 2 * sumWeightedRatios / slotWindow / (slotWindow + 1);
+    }
+}
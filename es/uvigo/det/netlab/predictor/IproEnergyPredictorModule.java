@@ -34,18 +34,19 @@ public class IproEnergyPredictorModule extends PredictorModule
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param initEntry the initial data entry
-     * @param pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initTimeslot the initial timeslot
+     * @param initValue    the data value at the initial timeslot
+     * @param pastTimeslot the past timeslot
+     * @param pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
-	double initEntryValue = initEntry.getValue();
-	double prevInitEntryValue = currentData.getEntryByIndex(currentData.getIndexByTimeslot(initEntry.getTimeslot()) - 1).getValue();
-	double smartingFactor = initEntryValue + prevInitEntryValue == 0 ?
-	    0.0 : 2 * sFactor * prevInitEntryValue * (initEntryValue - prevInitEntryValue) / (initEntryValue + prevInitEntryValue);
-	return wFactor * initEntryValue + (1 - wFactor) * pastEntry.getValue() + smartingFactor;
+	double prevInitEntryValue = currentData.getValue(currentData.getIndexByTimeslot(initTimeslot) - 1);
+	double smartingFactor = initValue + prevInitEntryValue == 0 ?
+	    0.0 : 2 * sFactor * prevInitEntryValue * (initValue - prevInitEntryValue) / (initValue + prevInitEntryValue);
+	return wFactor * initValue + (1 - wFactor) * pastValue + smartingFactor;
     } 
 }
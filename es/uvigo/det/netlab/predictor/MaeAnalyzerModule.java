@@ -1,8 +1,5 @@
 package es.uvigo.det.netlab.predictor;
 
-import java.util.Map;
-import java.util.TreeMap;
-
 /**
  * This class extends the AnalyzerModule class to implement a MAE (Mean Absolute Error) analyzer.
  *
@@ -15,6 +12,39 @@ public class MaeAnalyzerModule extends AnalyzerModule
      * Number of data lists combined to compute the similar data list
      */
     private int combinedDataLists;
+
+    /**
+     * Update the absolute error sums of the pool lists incrementally as the window slides if true
+     */
+    private boolean incremental;
+
+    /**
+     * The data list, window size and first and last indexes of the absolute error sums (incremental mode)
+     */
+    private DataList windowList;
+    private int windowSize;
+    private int windowFirst;
+    private int windowLast;
+
+    /**
+     * The number of entries the window has slid since the absolute error sums were last computed from scratch
+     */
+    private int numSlides;
+
+    /**
+     * The absolute error sums of every pool list over the window (incremental mode)
+     */
+    private double[] errorSums;
+
+    /**
+     * The MAE of every pool list (reused between calls)
+     */
+    private double[] maes;
+
+    /**
+     * The indexes of the pool lists selected as the most similar ones (reused between calls)
+     */
+    private int[] selected;
     
     /**
      * Creates a new random analyzer module.
@@ -22,9 +52,37 @@ public class MaeAnalyzerModule extends AnalyzerModule
      * @param combinedDataLists the number of data lists combined to compute the similar data list
      */
     public MaeAnalyzerModule (int combinedDataLists)
+    {
+	this(combinedDataLists, false);
+    }
+
+    /**
+     * Creates a new MAE analyzer module.
+     *
+     * @param combinedDataLists the number of data lists combined to compute the similar data list
+     * @param incremental       update the MAE of every pool list incrementally as the window slides forward if true
+     */
+    public MaeAnalyzerModule (int combinedDataLists, boolean incremental)
     {
 	super();
 	this.combinedDataLists = combinedDataLists;
+	this.incremental = incremental;
+	errorSums = new double[0];
+	maes = new double[0];
+	selected = new int[0];
+    }
+
+    /**
+     * Removes the specified data list from the data pool of the module.
+     * 
+     * @param  dataList the data list
+     * @return true if the specified data list was in the data pool
+     */
+    public boolean remove (DataList dataList)
+    {
+	// The absolute error sums are indexed by pool position
+	windowList = null;
+	return super.remove(dataList);
     }
 
     /**
@@ -37,40 +95,158 @@ public class MaeAnalyzerModule extends AnalyzerModule
      */
     public DataList mostSimilarList (DataList dataList, int initSlot, int slotWindow)
     {
-	TreeMap<Double, DataList> listMap = new TreeMap<Double, DataList>();
-	for (DataList poolList : dataPool) {
-	    double mae = computeMAE(dataList, poolList, initSlot, slotWindow);
-	    listMap.put(Double.valueOf(mae), poolList);
+	int numLists = dataPool.size();
+	if (maes.length < numLists) {
+	    maes = new double[Math.max(numLists, 2 * maes.length)];
+	}
+	if (incremental) {
+	    slidingMAEs(dataList, initSlot, slotWindow);
+	} else {
+	    for (int j = 0; j < numLists; j++) {
+		maes[j] = computeMAE(dataList, dataPool.get(j), initSlot, slotWindow);
+	    }
 	}
+	int numSelected = selectSmallest(maes, numLists, Math.max(combinedDataLists, 1));
 	if (combinedDataLists <= 1) {
-	    return listMap.firstEntry().getValue();
+	    return dataPool.get(selected[0]);
 	}
 	
-	int counter = 0;
 	double sumMae = 0.0;
-	for (Map.Entry<Double, DataList> entryMap : listMap.entrySet()) {
-	    sumMae += entryMap.getKey();
-	    counter++;
-	    if (counter == combinedDataLists) {
-		break;
-	    }
+	for (int k = 0; k < numSelected; k++) {
+	    sumMae += maes[selected[k]];
+	}
+	// Timeslots of the data list followed, if it is not complete yet (streaming mode), by those of the pool
+	DataList firstList = dataPool.get(selected[0]);
+	int lastTimeslot = dataList.getTimeslot(dataList.size() - 1);
+	int numEntries = dataList.size();
+	int firstPoolIndex = firstList.getIndexByTimeslot(lastTimeslot) + 1;
+	if (firstPoolIndex < firstList.size() && firstList.getTimeslot(firstPoolIndex) > lastTimeslot) {
+	    numEntries += firstList.size() - firstPoolIndex;
 	}
 	DataList weightedList = new DataList("mae.trace", null);
-	for (DataEntry entry : dataList.getList()) {
-	    int entryTimeslot = entry.getTimeslot();
-	    counter = 0;
+	for (int index = 0; index < numEntries; index++) {
+	    int entryTimeslot = index < dataList.size() ? dataList.getTimeslot(index) : firstList.getTimeslot(firstPoolIndex + index - dataList.size());
 	    double value = 0.0;
-	    for (Map.Entry<Double, DataList> entryMap : listMap.entrySet()) {
-		value += (1 - entryMap.getKey() / sumMae) * entryMap.getValue().getEntryByTimeslot(entryTimeslot).getValue();
-		counter++;
-		if (counter == combinedDataLists) {
-		    break;
-		}
+	    for (int k = 0; k < numSelected; k++) {
+		value += (1 - maes[selected[k]] / sumMae) * dataPool.get(selected[k]).valueAt(entryTimeslot);
 	    }
-	    weightedList.addEntry(value / (combinedDataLists - 1), entry.getTimeslot());
+	    weightedList.addEntry(value / (combinedDataLists - 1), entryTimeslot);
 	}
 	return weightedList;
     }
+
+    /**
+     * Selects the indexes of the k smallest values (ties are broken by index, so that the first pool list wins)
+     * with a bounded max-heap of indexes, and stores them in ascending order at the beginning of the selected array.
+     *
+     * @return the number of selected indexes (k, or the number of values if lower)
+     */
+    private int selectSmallest (double[] values, int numValues, int k)
+    {
+	k = Math.min(k, numValues);
+	if (selected.length < k) {
+	    selected = new int[k];
+	}
+	int heapSize = 0;
+	for (int j = 0; j < numValues; j++) {
+	    if (heapSize < k) {
+		// Sift up
+		int pos = heapSize++;
+		while (pos > 0 && before(values, selected[(pos - 1) / 2], j)) {
+		    selected[pos] = selected[(pos - 1) / 2];
+		    pos = (pos - 1) / 2;
+		}
+		selected[pos] = j;
+	    } else if (before(values, j, selected[0])) {
+		siftDown(values, j, heapSize);
+	    }
+	}
+	// Heap sort in place: the largest remaining value is moved to the end
+	for (int size = heapSize - 1; size > 0; size--) {
+	    int largest = selected[0];
+	    siftDown(values, selected[size], size);
+	    selected[size] = largest;
+	}
+	return heapSize;
+    }
+
+    /**
+     * Places the given index at the root of the max-heap of the given size and sifts it down.
+     */
+    private void siftDown (double[] values, int index, int heapSize)
+    {
+	int pos = 0;
+	while (2 * pos + 1 < heapSize) {
+	    int child = 2 * pos + 1;
+	    if (child + 1 < heapSize && before(values, selected[child], selected[child + 1])) {
+		child++;
+	    }
+	    if (!before(values, index, selected[child])) {
+		break;
+	    }
+	    selected[pos] = selected[child];
+	    pos = child;
+	}
+	selected[pos] = index;
+    }
+
+    /**
+     * Returns true if the value at index i is ranked before the one at index j (lower value, or same value
+     * and lower index).
+     */
+    private static boolean before (double[] values, int i, int j)
+    {
+	int cmp = Double.compare(values[i], values[j]);
+	return cmp < 0 || (cmp == 0 && i < j);
+    }
+    
+    /**
+     * Computes the MAE of every pool list, updating the absolute error sums of the previous call when the window
+     * slides forward over the same data list: every entry entering or leaving the window costs O(1) per pool list.
+     * The sums are computed from scratch again once the window has slid slotWindow entries, so that rounding errors
+     * do not accumulate.
+     */
+    private void slidingMAEs (DataList dataList, int initSlot, int slotWindow)
+    {
+	int lastIndex = dataList.getIndexByTimeslot(initSlot);
+	int firstIndex = lastIndex - slotWindow + 1;
+	if (firstIndex < 0) {
+	    firstIndex = 0;
+	}
+	int numLists = dataPool.size();
+	boolean slide = dataList == windowList && slotWindow == windowSize && errorSums.length == numLists
+	    && lastIndex >= windowLast && firstIndex >= windowFirst && firstIndex <= windowLast + 1
+	    && numSlides + lastIndex - windowLast <= slotWindow;
+	if (slide) {
+	    for (int j = 0; j < numLists; j++) {
+		DataList poolList = dataPool.get(j);
+		for (int i = windowLast + 1; i <= lastIndex; i++) {
+		    errorSums[j] += Math.abs(dataList.getValue(i) - poolList.valueAt(dataList.getTimeslot(i)));
+		}
+		for (int i = windowFirst; i < firstIndex; i++) {
+		    errorSums[j] -= Math.abs(dataList.getValue(i) - poolList.valueAt(dataList.getTimeslot(i)));
+		}
+	    }
+	    numSlides += lastIndex - windowLast;
+	} else {
+	    errorSums = new double[numLists];
+	    for (int j = 0; j < numLists; j++) {
+		DataList poolList = dataPool.get(j);
+		for (int i = firstIndex; i <= lastIndex; i++) {
+		    errorSums[j] += Math.abs(dataList.getValue(i) - poolList.valueAt(dataList.getTimeslot(i)));
+		}
+	    }
+	    windowList = dataList;
+	    windowSize = slotWindow;
+	    numSlides = 0;
+	}
+	windowFirst = firstIndex;
+	windowLast = lastIndex;
+
+	for (int j = 0; j < numLists; j++) {
+	    maes[j] = Math.max(errorSums[j], 0.0) / (lastIndex - firstIndex + 1);
+	}
+    }
     
     private static double computeMAE (DataList dataList1, DataList dataList2, int initSlot, int slotWindow)
     {
@@ -79,12 +255,9 @@ public class MaeAnalyzerModule extends AnalyzerModule
 	if (firstIndex < 0) {
 	    firstIndex = 0;
 	}
-	DataEntry entry1, entry2;
 	double mae = 0.0;	
 	for (int i = firstIndex; i <= lastIndex; i++) {
-	    entry1 = dataList1.getEntryByIndex(i);
-	    entry2 = dataList2.getEntryByTimeslot(entry1.getTimeslot());
-	    mae += Math.abs(entry1.getValue() - entry2.getValue());
+	    mae += Math.abs(dataList1.getValue(i) - dataList2.valueAt(dataList1.getTimeslot(i)));
 	}
 	mae /= (lastIndex - firstIndex + 1);
 	return mae;
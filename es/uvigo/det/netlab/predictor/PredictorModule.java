@@ -30,6 +30,18 @@ abstract public class PredictorModule
 	this.pastData = pastData;
     }
     
+    /**
+     * Prepares the predictor module for a new initial timeslot, so that the same instance can be reused
+     * across timeslots. Predictors that keep state depending on the initial timeslot override this method.
+     *
+     * @param pastData the data list with past observations for the new initial timeslot
+     * @param initSlot the new initial timeslot
+     */
+    public void reset (DataList pastData, int initSlot)
+    {
+	this.pastData = pastData;
+    }
+
     /**
      * Returns a data list with predictions from the initial timeslot to the final one.
      *
@@ -40,21 +52,98 @@ abstract public class PredictorModule
      */
     public DataList getPredictions (int initialTimeslot, int finalTimeslot, int stepTimeslot)
     {
-	DataEntry currentEntry = currentData.getEntryByTimeslot(initialTimeslot);
+	double[] predictions = new double[Math.max((finalTimeslot - initialTimeslot) / stepTimeslot, 0)];
+	int numPredictions = predictHorizons(initialTimeslot, finalTimeslot, stepTimeslot, predictions);
 	DataList predictionsList = new DataList(initialTimeslot + ".predictions", null);
 	predictionsList.addEntry(0, initialTimeslot);
-	for (int timeslot = initialTimeslot + stepTimeslot; timeslot <= finalTimeslot; timeslot += stepTimeslot) {
-	    predictionsList.addEntry(getPrediction(currentEntry, pastData.getEntryByTimeslot(timeslot)), timeslot);
+	for (int h = 0; h < numPredictions; h++) {
+	    predictionsList.addEntry(predictions[h], initialTimeslot + (h + 1) * stepTimeslot);
 	}
 	return predictionsList;
     }
+
+    /**
+     * Computes the predictions for every timeslot from the initial timeslot (excluded) to the final one.
+     * Recursive predictors override this method to compute every horizon in a single forward pass
+     * instead of calling getPrediction for each one.
+     *
+     * @param initialTimeslot the initial timeslot
+     * @param finalTimeslot   the final timeslot
+     * @param stepTimeslot    the timeslot step
+     * @param predictions     the array where the predictions are stored (one per step)
+     * @return the number of predictions stored in the array
+     */
+    public int predictHorizons (int initialTimeslot, int finalTimeslot, int stepTimeslot, double[] predictions)
+    {
+	double currentValue = currentData.valueAt(initialTimeslot);
+	int numPredictions = 0;
+	for (int timeslot = initialTimeslot + stepTimeslot; timeslot <= finalTimeslot; timeslot += stepTimeslot) {
+	    predictions[numPredictions++] = getPrediction(initialTimeslot, currentValue, timeslot, pastData.valueAt(timeslot));
+	}
+	return numPredictions;
+    }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Appends a new sample to the current data and updates the state of the predictor (streaming mode).
+     *
+     * @param timeslot the timeslot of the sample
+     * @param value    the data value of the sample
+     */
+    public void onSample (int timeslot, double value)
+    {
+	currentData.addEntry(value, timeslot);
+	update(currentData.size() - 1);
+    }
+
+    /**
+     * Updates the state of the predictor once a new sample has been appended to the current data.
+     * Predictors that keep state derived from the current data override this method with an O(1) update.
+     *
+     * @param index the index of the new sample in the current data
+     */
+    protected void update (int index)
+    {
+    }
+
+    /**
+     * Computes the predictions for the timeslots following the last sample of the current data (streaming mode).
+     * Predictors whose getPrediction rescans the current data override this method to use their state instead.
+     *
+     * @param stepTimeslot the timeslot step
+     * @param predictions  the array where the predictions for the next predictions.length steps are stored
+     */
+    public void predict (int stepTimeslot, double[] predictions)
+    {
+	int initTimeslot = currentData.getTimeslot(currentData.size() - 1);
+	predictHorizons(initTimeslot, initTimeslot + predictions.length * stepTimeslot, stepTimeslot, predictions);
+    }
+
+    /**
+     * Returns the number of samples per prediction step, from the spacing between the last two samples of the
+     * current data (or between timeslot 0 and the only sample, as timeslots start one step after 0).
+     *
+     * @param  stepTimeslot the timeslot step
+     * @return the number of samples per prediction step
+     * @throws IllegalArgumentException if the timeslot step is not a multiple of the sample spacing
+     */
+    protected int samplesPerStep (int stepTimeslot)
+    {
+	int lastIndex = currentData.size() - 1;
+	int sampleStep = currentData.getTimeslot(lastIndex) - (lastIndex > 0 ? currentData.getTimeslot(lastIndex - 1) : 0);
+	if (sampleStep <= 0 || stepTimeslot % sampleStep != 0) {
+	    throw new IllegalArgumentException("Prediction step not a multiple of the sample spacing!");
+	}
+	return stepTimeslot / sampleStep;
+    }
+
+    /**
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param initEntry the initial data entry
-     * @param pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initTimeslot the initial timeslot
+     * @param initValue    the data value at the initial timeslot
+     * @param pastTimeslot the past timeslot
+     * @param pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    abstract public double getPrediction (DataEntry initEntry, DataEntry pastEntry);
+    abstract public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue);
 }
@@ -0,0 +1,143 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements the registry of predictor modules, keyed by predictor mode.
+ *
+ * A predictor module is created once per challenge with the factory of its mode and then reset for every
+ * initial timeslot, so that the simulation loop neither matches the predictor mode nor builds a new module
+ * on every timeslot.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class PredictorRegistry
+{
+    /**
+     * This interface creates the predictor modules of a predictor mode and prepares them for every initial timeslot.
+     */
+    public interface Factory
+    {
+	/**
+	 * Returns a new predictor module.
+	 *
+	 * @param  config         the simulator configuration
+	 * @param  challengeList  the challenge data list
+	 * @param  similarList    the most similar list to the challenge
+	 * @param  analyzer       the analyzer module that returned the most similar list
+	 * @param  udwcmaAnalyzer the analyzer module used to obtain the most similar past day for UD-WCMA predictions
+	 * @param  initSlot       the initial timeslot
+	 * @return a new predictor module
+	 */
+	PredictorModule create (Configuration config, DataList challengeList, DataList similarList,
+				AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int initSlot);
+
+	/**
+	 * Prepares a predictor module created by this factory for a new initial timeslot.
+	 *
+	 * @param predictor      the predictor module
+	 * @param config         the simulator configuration
+	 * @param similarList    the most similar list to the challenge
+	 * @param analyzer       the analyzer module that returned the most similar list
+	 * @param udwcmaAnalyzer the analyzer module used to obtain the most similar past day for UD-WCMA predictions
+	 * @param initSlot       the new initial timeslot
+	 */
+	default void reset (PredictorModule predictor, Configuration config, DataList similarList,
+			    AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int initSlot)
+	{
+	    predictor.reset(similarList, initSlot);
+	}
+    }
+
+    /**
+     * The factories of the registered predictor modes
+     */
+    private static final Map<String, Factory> factories = new HashMap<String, Factory>();
+
+    static {
+	register("dumb", (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+		 new DumbPredictorModule(challengeList, similarList));
+	Factory proEnergy = (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+	    new ProEnergyPredictorModule(challengeList, similarList, config.weightingFactor, config.correlationFactor);
+	register("pro-energy", proEnergy);
+	register("pro-energy-vlt", proEnergy);
+	register("ipro-energy", (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+		 new IproEnergyPredictorModule(challengeList, similarList, config.weightingFactor));
+	register("dwcma", new Factory() {
+		public PredictorModule create (Configuration config, DataList challengeList, DataList similarList,
+					       AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int t) {
+		    DataList factorList = ((AverageAnalyzerModule) analyzer).alphaWeightingFactorList();
+		    return new DwcmaPredictorModule(challengeList, similarList, factorList, t, config.timeslotWindow);
+		}
+		public void reset (PredictorModule predictor, Configuration config, DataList similarList,
+				   AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int t) {
+		    predictor.reset(similarList, t);
+		    ((DwcmaPredictorModule) predictor).setFactorList(((AverageAnalyzerModule) analyzer).alphaWeightingFactorList());
+		}
+	    });
+	register("udwcma", new Factory() {
+		public PredictorModule create (Configuration config, DataList challengeList, DataList similarList,
+					       AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int t) {
+		    DataList udwcmaSimilarList = udwcmaAnalyzer.mostSimilarList(challengeList, t, config.timeslotWindow);
+		    return new UDwcmaPredictorModule(challengeList, similarList, udwcmaSimilarList, factorLists(analyzer), t, config.timeslotWindow);
+		}
+		public void reset (PredictorModule predictor, Configuration config, DataList similarList,
+				   AnalyzerModule analyzer, AnalyzerModule udwcmaAnalyzer, int t) {
+		    predictor.reset(similarList, t);
+		    DataList udwcmaSimilarList = udwcmaAnalyzer.mostSimilarList(predictor.currentData, t, config.timeslotWindow);
+		    ((UDwcmaPredictorModule) predictor).setSimilarData(udwcmaSimilarList, factorLists(analyzer));
+		}
+	    });
+	Factory saa = (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+	    new SaaPredictorModule(challengeList, similarList, config.exactSaaModel, config.seriesDegree,
+				   config.seriesType, config.tableSize);
+	register("saa", saa);
+	register("saa-sine", saa);
+	register("wep", (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+		 new WepPredictorModule(challengeList, similarList, config.timeslotWindow));
+	register("arma", (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+		 new ArmaPredictorModule(challengeList, similarList, config.arCoef, config.maCoef));
+	register("ewma", (config, challengeList, similarList, analyzer, udwcmaAnalyzer, t) ->
+		 new EwmaPredictorModule(challengeList, similarList, config.weightingFactor));
+    }
+
+    private PredictorRegistry () {}
+
+    /**
+     * Returns the data lists with the alpha and beta weighting factors computed by the given average analyzer.
+     */
+    private static DataList[] factorLists (AnalyzerModule analyzer)
+    {
+	return new DataList[] {((AverageAnalyzerModule) analyzer).alphaWeightingFactorList(),
+			       ((AverageAnalyzerModule) analyzer).betaWeightingFactorList()};
+    }
+
+    /**
+     * Registers the factory of the given predictor mode (replacing the previous one, if any).
+     *
+     * @param mode    the predictor mode
+     * @param factory the factory of the predictor modules
+     */
+    public static synchronized void register (String mode, Factory factory)
+    {
+	factories.put(mode, factory);
+    }
+
+    /**
+     * Returns the factory of the given predictor mode.
+     *
+     * @param  mode the predictor mode
+     * @return the factory of the predictor modules
+     * @throws IllegalArgumentException if the predictor mode is not registered
+     */
+    public static synchronized Factory get (String mode)
+    {
+	Factory factory = factories.get(mode);
+	if (factory == null) {
+	    throw new IllegalArgumentException("Unknown predictor mode " + mode + "!");
+	}
+	return factory;
+    }
+}
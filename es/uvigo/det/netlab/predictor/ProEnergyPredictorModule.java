@@ -34,23 +34,24 @@ public class ProEnergyPredictorModule extends PredictorModule
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param initEntry the initial data entry
-     * @param pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initTimeslot the initial timeslot
+     * @param initValue    the data value at the initial timeslot
+     * @param pastTimeslot the past timeslot
+     * @param pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
 	double gamma = wFactor;
 	if (cFactor > 0) {
-	    int initTimeslot = initEntry.getTimeslot();
-	    int slotStep = initTimeslot - currentData.getEntryByIndex(currentData.getIndexByTimeslot(initTimeslot) - 1).getTimeslot();
-	    gamma = wFactor * (1 - ((pastEntry.getTimeslot() - initTimeslot) / (double) slotStep - 1) / cFactor);
+	    int slotStep = initTimeslot - currentData.getTimeslot(currentData.getIndexByTimeslot(initTimeslot) - 1);
+	    gamma = wFactor * (1 - ((pastTimeslot - initTimeslot) / (double) slotStep - 1) / cFactor);
 	    if (gamma < 0) {
 		gamma = 0;
 	    }
 	}
-	return gamma * initEntry.getValue() + (1 - gamma) * pastEntry.getValue();
+	return gamma * initValue + (1 - gamma) * pastValue;
     } 
 }
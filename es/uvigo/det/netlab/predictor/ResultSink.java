@@ -0,0 +1,83 @@
+package es.uvigo.det.netlab.predictor;
+
+/**
+ * This interface represents the destination of the simulator results: data lists, predictions, error measures
+ * and free-form messages.
+ *
+ * Implementations: TextResultSink (the console format), CsvResultSink, BinaryResultSink and AsyncResultSink,
+ * which moves the formatting and the I/O of any other sink to a background thread.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public interface ResultSink
+{
+    /**
+     * Writes a free-form message (a line in text formats).
+     *
+     * @param text the message
+     */
+    void message (String text);
+
+    /**
+     * Writes the header of a data list (followed by its data entries and endDataList).
+     *
+     * @param label           the label of the data list
+     * @param numEntries      the number of data entries
+     * @param energyHarvested the energy harvested over the whole data list
+     */
+    void dataList (String label, int numEntries, double energyHarvested);
+
+    /**
+     * Writes a data entry of the current data list.
+     *
+     * @param timeslot the timeslot of the data entry
+     * @param value    the data value
+     * @param weight   the weight of the data entry
+     */
+    void dataEntry (int timeslot, double value, double weight);
+
+    /**
+     * Writes the end of the current data list.
+     */
+    void endDataList ();
+
+    /**
+     * Writes the sunrise, sunset and noon timeslots of a solar data list.
+     *
+     * @param sunrise the sunrise timeslot
+     * @param sunset  the sunset timeslot
+     * @param noon    the noon timeslot
+     */
+    void solarTimeslots (int sunrise, int sunset, int noon);
+
+    /**
+     * Writes a prediction and its error.
+     *
+     * @param horizon   the prediction horizon
+     * @param timeslot  the predicted timeslot
+     * @param actual    the actual value
+     * @param predicted the predicted value
+     * @param absError  the absolute error
+     * @param perError  the percentage error
+     */
+    void prediction (int horizon, int timeslot, double actual, double predicted, double absError, double perError);
+
+    /**
+     * Writes the error measures of a horizon.
+     *
+     * @param challenge the label of the challenge day (null for the error measures of the whole run)
+     * @param metrics   the error measures
+     */
+    void errorMetrics (String challenge, ErrorMetrics metrics);
+
+    /**
+     * Writes the pending results to the underlying output.
+     */
+    void flush ();
+
+    /**
+     * Writes the pending results and closes the underlying output.
+     */
+    void close ();
+}
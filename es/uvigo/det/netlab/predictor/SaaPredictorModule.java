@@ -31,14 +31,34 @@ public class SaaPredictorModule extends PredictorModule
     private boolean exactSolarModel;
    
     /**
-     * Factor used to compute the hour angle
+     * The solar altitude angles of the current day (exact solar model)
      */
-    private float hourFactor;
+    private SolarAltitudeTable altitudeTable;
 
     /**
      * Half the duration of a timeslot
      */
     private int halfTimeslot;
+
+    /**
+     * The degree of the Taylor/Chebyshev series used to approximate trigonometric functions
+     */
+    private int seriesDegree;
+
+    /**
+     * The approximation of the trigonometric functions
+     */
+    private TrigTools.SeriesType series;
+
+    /**
+     * The number of intervals of the trigonometric lookup tables
+     */
+    private int tableSize;
+
+    /**
+     * The arguments and results of the batch trigonometric functions (one per horizon, saa-sine)
+     */
+    private float[] angles = new float[0];
     
     /**
      * Creates a new SAA predictor module.
@@ -47,57 +67,104 @@ public class SaaPredictorModule extends PredictorModule
      * @param pastData      the data list with past observations
      * @param exactModel    use exact solar model to make predictions if true
      * @param seriesDegree  the degree of the Taylor/Chebyshev series used to approximate trigonometric functions
+     * @param series        the approximation of the trigonometric functions (Taylor/Chebyshev series or lookup table)
+     * @param tableSize     the number of intervals of the trigonometric lookup tables
      */
-    public SaaPredictorModule (DataList currentData, DataList pastData, boolean exactModel, int seriesDegree)
+    public SaaPredictorModule (DataList currentData, DataList pastData, boolean exactModel, int seriesDegree,
+			       TrigTools.SeriesType series, int tableSize)
     {
 	super(currentData, pastData);
 	sunriseTimeslot = ((SolarDataList) currentData).sunriseTimeslot();
 	sunsetTimeslot = ((SolarDataList) currentData).sunsetTimeslot();
 	noonTimeslot = ((SolarDataList) currentData).noonTimeslot();
 	exactSolarModel = exactModel;
-	TrigTools.seriesDegree = seriesDegree;
-	int currentDataSize = currentData.size();
-	int lastEntryTimeslot = currentData.getEntryByIndex(currentDataSize - 1).getTimeslot();
-	hourFactor = 24f / lastEntryTimeslot;
+	this.seriesDegree = seriesDegree;
+	this.series = series;
+	this.tableSize = tableSize;
+	int currentDataSize = ((SolarDataList) currentData).dayEntries();
+	int lastEntryTimeslot = ((SolarDataList) currentData).dayTimeslot();
 	halfTimeslot = lastEntryTimeslot / currentDataSize / 2;
+	if (exactSolarModel) {
+	    Calendar calendar = Calendar.getInstance();
+	    calendar.setTime(currentData.getDate());
+	    altitudeTable = SolarAltitudeTable.get(((SolarDataList) currentData).latitude(), calendar.get(Calendar.DAY_OF_YEAR),
+						   noonTimeslot, currentDataSize, lastEntryTimeslot, seriesDegree, series, tableSize);
+	}
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Computes the predictions for every timeslot from the initial timeslot (excluded) to the final one.
+     * The solar altitudes are read from the table of the current day, and the sines of saa-sine of all the
+     * horizons are computed with a single call to the batch trigonometric functions of TrigTools.
      *
-     * @param  initEntry the initial data entry
-     * @param  pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param initialTimeslot the initial timeslot
+     * @param finalTimeslot   the final timeslot
+     * @param stepTimeslot    the timeslot step
+     * @param predictions     the array where the predictions are stored (one per step)
+     * @return the number of predictions stored in the array
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public int predictHorizons (int initialTimeslot, int finalTimeslot, int stepTimeslot, double[] predictions)
+    {
+	int numPredictions = Math.max((finalTimeslot - initialTimeslot) / stepTimeslot, 0);
+	double initValue = currentData.valueAt(initialTimeslot);
+
+	if (exactSolarModel) {
+	    float initAngle = altitudeTable.altitude(initialTimeslot);
+	    if (initAngle > 0.00873) { // 0.5 degree
+		for (int h = 0; h < numPredictions; h++) {
+		    predictions[h] = initValue * altitudeTable.altitude(initialTimeslot + (h + 1) * stepTimeslot) / initAngle;
+		}
+		return numPredictions;
+	    }
+	} else {
+	    int initEntryTimeslot = initialTimeslot - halfTimeslot;
+	    float initSin = TrigTools.sin(TrigTools.PI * (initEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot), seriesDegree, series, tableSize);
+	    if (initSin > 0.00873) { // 0.5 degree
+		if (angles.length < numPredictions) {
+		    angles = new float[numPredictions];
+		}
+		for (int h = 0; h < numPredictions; h++) {
+		    int pastEntryTimeslot = initialTimeslot + (h + 1) * stepTimeslot - halfTimeslot;
+		    angles[h] = TrigTools.PI * (pastEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot);
+		}
+		TrigTools.sin(angles, angles, numPredictions, seriesDegree, series, tableSize);
+		for (int h = 0; h < numPredictions; h++) {
+		    predictions[h] = initValue * angles[h] / initSin;
+		}
+		return numPredictions;
+	    }
+	}
+	for (int h = 0; h < numPredictions; h++) {
+	    predictions[h] = 0.0;
+	}
+	return numPredictions;
+    }
+
+    /**
+     * Returns the data value predicted for the specified past timeslot.
+     *
+     * @param  initTimeslot the initial timeslot
+     * @param  initValue    the data value at the initial timeslot
+     * @param  pastTimeslot the past timeslot
+     * @param  pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
+     */
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
 	double predictedValue = 0.0;
-	double initEntryValue = initEntry.getValue();
-	int initEntryTimeslot = initEntry.getTimeslot() - halfTimeslot;
-	int pastEntryTimeslot = pastEntry.getTimeslot() - halfTimeslot;
 
 	if (exactSolarModel) {
-	    Calendar calendar = Calendar.getInstance();
-	    calendar.setTime(currentData.getDate());
-	    int dayofyear = calendar.get(Calendar.DAY_OF_YEAR);
-	    float latAngle = (float) ((SolarDataList) currentData).latitude() * TrigTools.PI / 180;
-	    float sinLatAngle = TrigTools.sin(latAngle);
-	    float cosLatAngle = TrigTools.cos(latAngle);
-	    float declAngle = -0.40928f * TrigTools.cos((dayofyear + 10) * 2 * TrigTools.PI / 365);
-	    float sinDeclAngle = TrigTools.sin(declAngle);
-	    float cosDeclAngle = TrigTools.cos(declAngle);
-	    float initHourAngle = TrigTools.PI / 12 * (initEntryTimeslot - noonTimeslot) * hourFactor;
-	    float initAngle = TrigTools.asin(sinDeclAngle * sinLatAngle + cosDeclAngle * cosLatAngle * TrigTools.cos(initHourAngle));
+	    float initAngle = altitudeTable.altitude(initTimeslot);
 	    if (initAngle > 0.00873) { // 0.5 degree
-		float pastHourAngle = TrigTools.PI / 12 * (pastEntryTimeslot - noonTimeslot) * hourFactor;
-		float pastAngle = TrigTools.asin(sinDeclAngle * sinLatAngle + cosDeclAngle * cosLatAngle * TrigTools.cos(pastHourAngle));
-		predictedValue = initEntryValue * pastAngle / initAngle;
+		predictedValue = initValue * altitudeTable.altitude(pastTimeslot) / initAngle;
 	    }
 	} else {
-	    float initSin = TrigTools.sin(TrigTools.PI * (initEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot));
+	    int initEntryTimeslot = initTimeslot - halfTimeslot;
+	    int pastEntryTimeslot = pastTimeslot - halfTimeslot;
+	    float initSin = TrigTools.sin(TrigTools.PI * (initEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot), seriesDegree, series, tableSize);
 	    if (initSin > 0.00873) { // 0.5 degree
-		float pastSin = TrigTools.sin(TrigTools.PI * (pastEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot));
-		predictedValue = initEntryValue * pastSin / initSin;
+		float pastSin = TrigTools.sin(TrigTools.PI * (pastEntryTimeslot - sunriseTimeslot) / (sunsetTimeslot - sunriseTimeslot), seriesDegree, series, tableSize);
+		predictedValue = initValue * pastSin / initSin;
 	    }
 	}
 	return predictedValue;
@@ -0,0 +1,298 @@
+package es.uvigo.det.netlab.predictor;
+
+/**
+ * This class implements the prediction of a challenge trace using a pool of past traces.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public class Simulation
+{
+    /**
+     * This exception is thrown when a challenge cannot be predicted with the configured timeslots.
+     */
+    public static class InvalidChallengeException extends IllegalArgumentException
+    {
+	private static final long serialVersionUID = 1L;
+
+	public InvalidChallengeException (String message)
+	{
+	    super(message);
+	}
+    }
+
+    /**
+     * The simulator configuration
+     */
+    private Configuration config;
+
+    /**
+     * The challenge data list
+     */
+    private DataList challengeList;
+
+    /**
+     * The challenge data list as read from the challenge file (the challenge data list may be resized)
+     */
+    private DataList initChallengeList;
+
+    /**
+     * The initial timeslot
+     */
+    private int initialTimeslot;
+
+    /**
+     * The final timeslot
+     */
+    private int finalTimeslot;
+
+    /**
+     * The analyzer module
+     */
+    private AnalyzerModule analyzer;
+
+    /**
+     * The analyzer module used to obtain the most similar past day for UD-WCMA predictions
+     */
+    private AnalyzerModule udwcmaAnalyzer;
+
+    /**
+     * The error accumulators of the predictions for each horizon
+     */
+    private ErrorAccumulator[] errorAccumulators;
+
+    /**
+     * The data lists with the predictions for each horizon (null if not recorded)
+     */
+    private DataList[] predictionsList;
+
+    /**
+     * The data lists with the actual values of the predictions for each horizon (null if not recorded)
+     */
+    private DataList[] challengesList;
+
+    /**
+     * Creates a new simulation.
+     *
+     * @param  config            the simulator configuration
+     * @param  challengeList     the challenge data list
+     * @param  initChallengeList the challenge data list as read from the challenge file
+     * @throws InvalidChallengeException if the prediction timeslots are not valid for the challenge
+     */
+    public Simulation (Configuration config, DataList challengeList, DataList initChallengeList)
+    {
+	this.config = config;
+	this.challengeList = challengeList;
+	this.initChallengeList = initChallengeList;
+	if (challengeList.size() == 0) {
+	    throw new InvalidChallengeException("Empty challenge!");
+	}
+	int[] timeslots = predictionTimeslots(config, challengeList);
+	initialTimeslot = timeslots[0];
+	finalTimeslot = timeslots[1];
+	analyzer = newAnalyzer(config);
+	if (config.predictorMode.equals("udwcma")) {
+	    udwcmaAnalyzer = new MaeAnalyzerModule(1);
+	}
+    }
+
+    /**
+     * Returns the initial and final timeslots of the predictions for the given challenge
+     * (from sunrise to sunset with solar traces if they are not configured).
+     *
+     * @param  config        the simulator configuration
+     * @param  challengeList the challenge data list
+     * @return an array with the initial and final timeslots of the predictions
+     * @throws InvalidChallengeException if the prediction timeslots are not valid for the challenge
+     */
+    static int[] predictionTimeslots (Configuration config, DataList challengeList)
+    {
+	int initialTimeslot = config.initialTimeslot;
+	int finalTimeslot = config.finalTimeslot;
+	int timeslotStep = config.timeslotStep;
+	if (EnergyPredictor.solarTraces && initialTimeslot == 0 && finalTimeslot == 0) {
+	    initialTimeslot = timeslotStep * (int) (Math.round(((SolarDataList) challengeList).sunriseTimeslot() / (double) timeslotStep) + 1);
+	    finalTimeslot = timeslotStep * (int) Math.round(((SolarDataList) challengeList).sunsetTimeslot() / (double) timeslotStep);
+	    if (finalTimeslot < initialTimeslot + config.predictionHorizon) {
+		throw new InvalidChallengeException("Invalid final timeslot!");
+	    }
+	}
+	return new int[] {initialTimeslot, finalTimeslot};
+    }
+
+    /**
+     * Returns a new analyzer module according to the configured analyzer mode.
+     *
+     * @param  config the simulator configuration
+     * @return a new analyzer module
+     */
+    static AnalyzerModule newAnalyzer (Configuration config)
+    {
+	String analyzerMode = config.analyzerMode;
+	if (analyzerMode.equals("random")) {
+	    return new RandomAnalyzerModule();
+	} else if (analyzerMode.equals("mae")) {
+	    return new MaeAnalyzerModule(config.combinedTraceFiles, config.incrementalAnalyzer);
+	} else if (analyzerMode.equals("average")) {
+	    return new AverageAnalyzerModule();
+	}
+	return new VoidAnalyzerModule();
+    }
+
+    /**
+     * Adds the specified data list to the trace pool of the simulation.
+     *
+     * @param traceList the data list
+     */
+    public void addTrace (DataList traceList)
+    {
+	analyzer.add(traceList);
+	if (udwcmaAnalyzer != null) {
+	    udwcmaAnalyzer.add(traceList);
+	}
+    }
+
+    /**
+     * Returns the number of data lists in the trace pool of the simulation.
+     *
+     * @return the number of data lists in the trace pool of the simulation
+     */
+    public int poolSize ()
+    {
+	return analyzer.size();
+    }
+
+    /**
+     * Computes the predictions for every timeslot of the challenge and keeps them to be written by analyze.
+     */
+    public void run ()
+    {
+	run(true);
+    }
+
+    /**
+     * Computes the predictions for every timeslot of the challenge and accumulates their errors for every horizon.
+     *
+     * @param  recordPredictions true if the predictions must be kept to be written by analyze
+     * @throws InvalidChallengeException if the challenge does not reach the final timeslot of the accumulated predictions
+     */
+    public void run (boolean recordPredictions)
+    {
+	int timeslotStep = config.timeslotStep;
+	int timeslotWindow = config.timeslotWindow;
+	int predictionHorizon = config.predictionHorizon;
+	int predictionStep = config.predictionStep;
+	boolean accPredictions = EnergyPredictor.accPredictions;
+	boolean energyTraces = EnergyPredictor.energyTraces;
+	double powerFactor = energyTraces ? 1.0 : EnergyPredictor.SECONDS_PER_DAY / (double) challengeList.getTimeslot(challengeList.size() - 1);
+	double mapeValueThreshold = 0.1 * challengeList.getMaxEntry().getValue(); // MAPE
+	if (accPredictions && finalTimeslot > initChallengeList.getTimeslot(initChallengeList.size() - 1)) {
+	    throw new InvalidChallengeException("Not enough challenge timeslots for the accumulated predictions!");
+	}
+
+	// Error accumulators and recorded predictions
+	int numHorizons = predictionHorizon / predictionStep;
+	errorAccumulators = new ErrorAccumulator[numHorizons];
+	predictionsList = recordPredictions ? new DataList[numHorizons] : null;
+	challengesList = recordPredictions ? new DataList[numHorizons] : null;
+	for (int i = 0; i < numHorizons; i++) {
+	    int horizon = (i + 1) * predictionStep;
+	    errorAccumulators[i] = new ErrorAccumulator(horizon);
+	    if (recordPredictions) {
+		predictionsList[i] = new DataList(horizon + "-horizon.predictions", null);
+		challengesList[i] = new DataList(horizon + "-horizon.challenge", null);
+	    }
+	}
+
+	// Computing predictions
+	PredictorRegistry.Factory factory = PredictorRegistry.get(config.predictorMode);
+	PredictorModule predictor = null;
+	double[] challengeValues = new double[numHorizons];
+	double[] predictionValues = new double[numHorizons];
+	for (int t = initialTimeslot; t < finalTimeslot; t += timeslotStep) {
+	    DataList similarList = analyzer.mostSimilarList(challengeList, t, timeslotWindow);
+	    if (similarList == null) {
+		EnergyPredictor.printError("Null similar list!");
+	    }
+	    //similarList.print();
+	    if (predictor == null) {
+		predictor = factory.create(config, challengeList, similarList, analyzer, udwcmaAnalyzer, t);
+	    } else {
+		factory.reset(predictor, config, similarList, analyzer, udwcmaAnalyzer, t);
+	    }
+
+	    int horizonTimeslot = t + predictionHorizon;
+	    if (horizonTimeslot > finalTimeslot) {
+		horizonTimeslot = finalTimeslot;
+	    }
+	    DataList predictions = predictor.getPredictions(t, horizonTimeslot, predictionStep);
+	    //predictions.print();
+	    int numPredictions = predictions.size() - 1;
+	    if (accPredictions) {
+		// Energy harvested from t to every horizon (the MAPE threshold depends on the largest one)
+		double maxChallengeValue = 0.0;
+		for (int j = 0; j < numPredictions; j++) {
+		    int horizon = predictions.getTimeslot(j + 1);
+		    challengeValues[j] = initChallengeList.getEnergyHarvested(t, horizon, powerFactor);
+		    predictionValues[j] = predictions.getEnergyHarvested(t, horizon, powerFactor) * predictionStep / timeslotStep;
+		    if (j == 0 || challengeValues[j] > maxChallengeValue) {
+			maxChallengeValue = challengeValues[j];
+		    }
+		}
+		mapeValueThreshold = 0.1 * maxChallengeValue; // MAPE
+	    } else {
+		for (int j = 0; j < numPredictions; j++) {
+		    challengeValues[j] = challengeList.valueAt(predictions.getTimeslot(j + 1));
+		    predictionValues[j] = predictions.getValue(j + 1);
+		    if (!energyTraces) {
+			predictionValues[j] *= powerFactor * timeslotStep;
+			challengeValues[j] *= powerFactor * timeslotStep;
+		    }
+		}
+	    }
+	    for (int j = 0; j < numPredictions; j++) {
+		errorAccumulators[j].add(challengeValues[j], predictionValues[j], mapeValueThreshold);
+		if (recordPredictions) {
+		    predictionsList[j].addEntry(predictionValues[j], predictions.getTimeslot(j + 1));
+		    challengesList[j].addEntry(challengeValues[j], predictions.getTimeslot(j + 1));
+		}
+	    }
+	}
+    }
+
+    /**
+     * Returns the error accumulators of the predictions for every horizon.
+     *
+     * @return the error accumulators of the predictions for every horizon
+     */
+    public ErrorAccumulator[] getErrorAccumulators ()
+    {
+	return errorAccumulators;
+    }
+
+    /**
+     * Returns the error measures of the predictions for every horizon.
+     *
+     * @param  sink the result sink where the error of every recorded prediction and the error measures are written (null for none)
+     * @return the error measures of the predictions for every horizon
+     */
+    public ErrorMetrics[] analyze (ResultSink sink)
+    {
+	ErrorMetrics[] errorMetrics = new ErrorMetrics[errorAccumulators.length];
+	for (int horizonIndex = 0; horizonIndex < errorAccumulators.length; horizonIndex++) {
+	    int horizon = errorAccumulators[horizonIndex].getHorizon();
+	    for (int i = 0; sink != null && predictionsList != null && i < predictionsList[horizonIndex].size(); i++) {
+		double challengeValue = challengesList[horizonIndex].getValue(i);
+		double predictionValue = predictionsList[horizonIndex].getValue(i);
+		sink.prediction(horizon, predictionsList[horizonIndex].getTimeslot(i), challengeValue, predictionValue,
+				ErrorAccumulator.absError(challengeValue, predictionValue),
+				ErrorAccumulator.perError(challengeValue, predictionValue));
+	    }
+	    errorMetrics[horizonIndex] = errorAccumulators[horizonIndex].getMetrics();
+	    if (sink != null) {
+		errorMetrics[horizonIndex].print(sink);
+	    }
+	}
+	return errorMetrics;
+    }
+}
@@ -0,0 +1,225 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class implements a per-day table of solar altitude angles indexed by data entry, as used by the exact
+ * SAA predictor.
+ *
+ * The latitude and declination terms and the altitude of every data entry of the day are computed once with
+ * the given TrigTools approximation, so that an SAA prediction only needs two table reads and one divide.
+ * Tables are shared by every data list of the same site, day of the year and timeslot resolution (challenge
+ * and pool days, sweep and backtest runs) and can be queried concurrently. The least recently used table is
+ * dropped when the cache is full.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class SolarAltitudeTable
+{
+    /**
+     * The maximum number of cached tables (a few years of days at a single site)
+     */
+    private static final int MAX_TABLES = 1024;
+
+    /**
+     * This class represents the key of a cached table.
+     */
+    private static final class Key
+    {
+	private final double latitude;
+	private final int dayOfYear;
+	private final int noonTimeslot;
+	private final int dayEntries;
+	private final int dayTimeslot;
+	private final int seriesDegree;
+	private final TrigTools.SeriesType series;
+	private final int tableSize;
+
+	Key (double latitude, int dayOfYear, int noonTimeslot, int dayEntries, int dayTimeslot, int seriesDegree,
+	     TrigTools.SeriesType series, int tableSize)
+	{
+	    this.latitude = latitude;
+	    this.dayOfYear = dayOfYear;
+	    this.noonTimeslot = noonTimeslot;
+	    this.dayEntries = dayEntries;
+	    this.dayTimeslot = dayTimeslot;
+	    this.seriesDegree = seriesDegree;
+	    this.series = series;
+	    this.tableSize = tableSize;
+	}
+
+	public boolean equals (Object o)
+	{
+	    if (!(o instanceof Key)) {
+		return false;
+	    }
+	    Key key = (Key) o;
+	    return Double.compare(latitude, key.latitude) == 0 && dayOfYear == key.dayOfYear && noonTimeslot == key.noonTimeslot
+		&& dayEntries == key.dayEntries && dayTimeslot == key.dayTimeslot && seriesDegree == key.seriesDegree
+		&& series == key.series && tableSize == key.tableSize;
+	}
+
+	public int hashCode ()
+	{
+	    int hash = Double.hashCode(latitude);
+	    hash = 31 * hash + dayOfYear;
+	    hash = 31 * hash + noonTimeslot;
+	    hash = 31 * hash + dayEntries;
+	    hash = 31 * hash + dayTimeslot;
+	    hash = 31 * hash + seriesDegree;
+	    hash = 31 * hash + series.hashCode();
+	    return 31 * hash + tableSize;
+	}
+    }
+
+    /**
+     * The most recently used tables, in access order (guarded by its own lock)
+     */
+    private static final Map<Key, SolarAltitudeTable> tables = new LinkedHashMap<Key, SolarAltitudeTable>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+
+	    protected boolean removeEldestEntry (Map.Entry<Key, SolarAltitudeTable> eldest)
+	    {
+		return size() > MAX_TABLES;
+	    }
+	};
+
+    /**
+     * The noon timeslot
+     */
+    private final int noonTimeslot;
+
+    /**
+     * Factor used to compute the hour angle
+     */
+    private final float hourFactor;
+
+    /**
+     * Half the duration of a timeslot
+     */
+    private final int halfTimeslot;
+
+    /**
+     * The number of timeslots between consecutive data entries
+     */
+    private final int entryTimeslots;
+
+    /**
+     * The degree of the Taylor/Chebyshev series used to approximate trigonometric functions
+     */
+    private final int seriesDegree;
+
+    /**
+     * The approximation of the trigonometric functions
+     */
+    private final TrigTools.SeriesType series;
+
+    /**
+     * The number of intervals of the trigonometric lookup tables
+     */
+    private final int tableSize;
+
+    /**
+     * The products of the sines and of the cosines of the declination and latitude angles
+     */
+    private final float sinProduct;
+    private final float cosProduct;
+
+    /**
+     * The solar altitude angle of every data entry of the day (at the timeslots multiple of entryTimeslots)
+     */
+    private final float[] altitudes;
+
+    /**
+     * Computes the table of the given day.
+     */
+    private SolarAltitudeTable (double latitude, int dayOfYear, int noonTimeslot, int dayEntries, int dayTimeslot, int seriesDegree,
+				TrigTools.SeriesType series, int tableSize)
+    {
+	this.noonTimeslot = noonTimeslot;
+	this.seriesDegree = seriesDegree;
+	this.series = series;
+	this.tableSize = tableSize;
+	hourFactor = 24f / dayTimeslot;
+	halfTimeslot = dayTimeslot / dayEntries / 2;
+	entryTimeslots = Math.max(dayTimeslot / dayEntries, 1);
+	float latAngle = (float) latitude * TrigTools.PI / 180;
+	float sinLatAngle = TrigTools.sin(latAngle, seriesDegree, series, tableSize);
+	float cosLatAngle = TrigTools.cos(latAngle, seriesDegree, series, tableSize);
+	float declAngle = -0.40928f * TrigTools.cos((dayOfYear + 10) * 2 * TrigTools.PI / 365, seriesDegree, series, tableSize);
+	float sinDeclAngle = TrigTools.sin(declAngle, seriesDegree, series, tableSize);
+	float cosDeclAngle = TrigTools.cos(declAngle, seriesDegree, series, tableSize);
+	sinProduct = sinDeclAngle * sinLatAngle;
+	cosProduct = cosDeclAngle * cosLatAngle;
+	altitudes = new float[dayTimeslot / entryTimeslots + 1];
+	for (int entry = 0; entry < altitudes.length; entry++) {
+	    altitudes[entry] = hourAngle(entry * entryTimeslots);
+	}
+	TrigTools.cos(altitudes, altitudes, altitudes.length, seriesDegree, series, tableSize);
+	for (int entry = 0; entry < altitudes.length; entry++) {
+	    altitudes[entry] = sinProduct + cosProduct * altitudes[entry];
+	}
+	TrigTools.asin(altitudes, altitudes, altitudes.length, seriesDegree, series, tableSize);
+    }
+
+    /**
+     * Returns the table of the given day and site, computing it if it is not cached yet.
+     *
+     * @param  latitude     the latitude in decimal degrees
+     * @param  dayOfYear    the day of the year
+     * @param  noonTimeslot the noon timeslot
+     * @param  dayEntries   the number of data entries of the whole day
+     * @param  dayTimeslot  the timeslot of the last data entry of the whole day
+     * @param  seriesDegree the degree of the Taylor/Chebyshev series used to approximate trigonometric functions
+     * @param  series       the approximation of the trigonometric functions
+     * @param  tableSize    the number of intervals of the trigonometric lookup tables
+     * @return the table of the given day and site
+     */
+    public static SolarAltitudeTable get (double latitude, int dayOfYear, int noonTimeslot, int dayEntries, int dayTimeslot, int seriesDegree,
+					  TrigTools.SeriesType series, int tableSize)
+    {
+	Key key = new Key(latitude, dayOfYear, noonTimeslot, dayEntries, dayTimeslot, seriesDegree, series, tableSize);
+	SolarAltitudeTable table;
+	synchronized (tables) {
+	    table = tables.get(key);
+	}
+	if (table == null) {
+	    // Computed without holding the lock, so other tables can be read meanwhile
+	    table = new SolarAltitudeTable(latitude, dayOfYear, noonTimeslot, dayEntries, dayTimeslot, seriesDegree, series, tableSize);
+	    synchronized (tables) {
+		SolarAltitudeTable previous = tables.putIfAbsent(key, table);
+		if (previous != null) {
+		    table = previous;
+		}
+	    }
+	}
+	return table;
+    }
+
+    /**
+     * Returns the hour angle at the middle of the given timeslot.
+     */
+    private float hourAngle (int timeslot)
+    {
+	int entryTimeslot = timeslot - halfTimeslot;
+	return TrigTools.PI / 12 * (entryTimeslot - noonTimeslot) * hourFactor;
+    }
+
+    /**
+     * Returns the solar altitude angle at the given timeslot (computed if it is not the timeslot of a data entry
+     * of the day).
+     *
+     * @param  timeslot the timeslot
+     * @return the solar altitude angle (in radians)
+     */
+    public float altitude (int timeslot)
+    {
+	int entry = timeslot / entryTimeslots;
+	if (timeslot >= 0 && entry < altitudes.length && entry * entryTimeslots == timeslot) {
+	    return altitudes[entry];
+	}
+	return TrigTools.asin(sinProduct + cosProduct * TrigTools.cos(hourAngle(timeslot), seriesDegree, series, tableSize), seriesDegree, series, tableSize);
+    }
+}
@@ -1,10 +1,6 @@
 package es.uvigo.det.netlab.predictor;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.Calendar;
-import java.util.TimeZone;
 
 /**
  * This class extends the DataList class to implement a list of solar data entries.
@@ -14,16 +10,6 @@ import java.util.TimeZone;
  */
 public class SolarDataList extends DataList
 {
-    /**
-     * The date corresponding to the sunrise in the solar data list.
-     */
-    private Date sunriseDate;
-    
-    /**
-     * The date corresponding to the sunset in the solar data list.
-     */
-    private Date sunsetDate;
-    
     /**
      * The timeslot corresponding to the sunrise in the solar data list.
      */
@@ -53,6 +39,21 @@ public class SolarDataList extends DataList
      * The longitude of the corresponding location in decimal degrees.
      */
     private double longitude;
+
+    /**
+     * The ephemeris of the sunrise and sunset times.
+     */
+    private Ephemeris ephemeris;
+
+    /**
+     * The number of data entries of the whole day (0 if the solar data list holds the whole day).
+     */
+    private int dayEntries;
+
+    /**
+     * The timeslot of the last data entry of the whole day (0 if the solar data list holds the whole day).
+     */
+    private int dayTimeslot;
     
     /**
      * Creates a new solar data list.
@@ -62,15 +63,16 @@ public class SolarDataList extends DataList
      * @param tz    the time zone of the corresponding location
      * @param lat   the latitude of the corresponding location in decimal degrees
      * @param lng   the longitude of the corresponding location in decimal degrees
+     * @param eph   the ephemeris of the sunrise and sunset times
      */
-    public SolarDataList (String label, Date date, String tz, double lat, double lng)
+    public SolarDataList (String label, Date date, String tz, double lat, double lng, Ephemeris eph)
     {
 	super(label, date);
 	sunriseSlot = sunsetSlot = noonSlot = -1;
-	sunriseDate = sunsetDate = null;
 	timeZone = tz;
 	latitude = lat;
 	longitude = lng;
+	ephemeris = eph;
     }
     
     /**
@@ -94,20 +96,48 @@ public class SolarDataList extends DataList
     }
     
     /**
-     * Returns the timeslot corresponding to the given time/date in the solar data list.
+     * Sets the number of data entries and the last timeslot of the whole day, for solar data lists
+     * that are filled incrementally (streaming mode).
+     *
+     * @param numEntries   the number of data entries of the whole day
+     * @param lastTimeslot the timeslot of the last data entry of the whole day
+     */
+    public void setDayLength (int numEntries, int lastTimeslot)
+    {
+	dayEntries = numEntries;
+	dayTimeslot = lastTimeslot;
+	sunriseSlot = sunsetSlot = noonSlot = -1;
+    }
+
+    /**
+     * Returns the number of data entries of the whole day.
+     *
+     * @return the number of data entries of the whole day
+     */
+    public int dayEntries ()
+    {
+	return dayEntries > 0 ? dayEntries : size();
+    }
+
+    /**
+     * Returns the timeslot of the last data entry of the whole day.
      *
-     * @param  date the date
-     * @return the timeslot corresponding to the given time/date in the solar data list
+     * @return the timeslot of the last data entry of the whole day
      */
-    private int convertDateToTimeslot (Date date)
+    public int dayTimeslot ()
     {
-	Calendar calendar = Calendar.getInstance();
-	calendar.setTimeZone(TimeZone.getTimeZone(timeZone));
-	calendar.setTime(date);
-	int seconds = calendar.get(Calendar.HOUR_OF_DAY) * 3600;
-	seconds += calendar.get(Calendar.MINUTE) * 60;
-	seconds += calendar.get(Calendar.SECOND);
-	return seconds * getEntryByIndex(size() - 1).getTimeslot() / EnergyPredictor.SECONDS_PER_DAY;
+	return dayTimeslot > 0 ? dayTimeslot : getTimeslot(size() - 1);
+    }
+
+    /**
+     * Obtains the sunrise, sunset and noon timeslots from the ephemeris.
+     */
+    private void computeSolarTimeslots ()
+    {
+	int[] timeslots = ephemeris.timeslots(getDate(), latitude, longitude, timeZone, dayTimeslot());
+	sunriseSlot = timeslots[0];
+	sunsetSlot = timeslots[1];
+	noonSlot = timeslots[2];
     }
 
     /**
@@ -117,14 +147,14 @@ public class SolarDataList extends DataList
      */
     private int estimateSunriseTimeslot ()
     {
-	DataEntry prevEntry = getList().get(0);
-	for (DataEntry entry : getList()) {
-	    if (entry.getValue() > 0.1) {
-		return prevEntry.getTimeslot();
+	int prevIndex = 0;
+	for (int index = 0; index < size(); index++) {
+	    if (getValue(index) > 0.1) {
+		return getTimeslot(prevIndex);
 	    }
-	    prevEntry = entry;
+	    prevIndex = index;
 	}
-	return prevEntry.getTimeslot();
+	return getTimeslot(prevIndex);
     }
     
     /**
@@ -135,12 +165,7 @@ public class SolarDataList extends DataList
     public int sunriseTimeslot ()
     {
 	if (sunriseSlot < 0) {
-	    if (sunriseDate == null) {
-		Date[] sunriseSunsetDates = SolarTools.sunriseSunsetTimes(getDate(), latitude, longitude);
-		sunriseDate = sunriseSunsetDates[0];
-		sunsetDate = sunriseSunsetDates[1];
-	    }
-	    sunriseSlot = convertDateToTimeslot(sunriseDate);
+	    computeSolarTimeslots();
 	}
 	return sunriseSlot;
     }
@@ -152,16 +177,14 @@ public class SolarDataList extends DataList
      */
     private int estimateSunsetTimeslot ()
     {
-	ArrayList<DataEntry> revList = new ArrayList<DataEntry>(getList());
-	Collections.reverse(revList);
-	DataEntry prevEntry = revList.get(0);
-	for (DataEntry entry : revList) {
-	    if (entry.getValue() > 0.1) {
-		return prevEntry.getTimeslot();
+	int prevIndex = size() - 1;
+	for (int index = size() - 1; index >= 0; index--) {
+	    if (getValue(index) > 0.1) {
+		return getTimeslot(prevIndex);
 	    }
-	    prevEntry = entry;
+	    prevIndex = index;
 	}
-	return prevEntry.getTimeslot();
+	return getTimeslot(prevIndex);
     }
     
     /**
@@ -172,12 +195,7 @@ public class SolarDataList extends DataList
     public int sunsetTimeslot ()
     {
 	if (sunsetSlot < 0) {
-	    if (sunsetDate == null) {
-		Date[] sunriseSunsetDates = SolarTools.sunriseSunsetTimes(getDate(), latitude, longitude);
-		sunriseDate = sunriseSunsetDates[0];
-		sunsetDate = sunriseSunsetDates[1];
-	    }
-	    sunsetSlot = convertDateToTimeslot(sunsetDate);
+	    computeSolarTimeslots();
 	}
 	return sunsetSlot;
     }
@@ -190,17 +208,19 @@ public class SolarDataList extends DataList
     public int noonTimeslot ()
     {
 	if (noonSlot < 0) {
-	    noonSlot = (sunriseTimeslot() + sunsetTimeslot()) / 2;
+	    computeSolarTimeslots();
 	}
 	return noonSlot;
     }
 
     /**
-     * Prints on standard output the data entries in the solar data list.
+     * Writes the data entries in the solar data list and its sunrise, sunset and noon timeslots to the given result sink.
+     *
+     * @param sink the result sink
      */
-    public void print ()
+    public void print (ResultSink sink)
     {
-	super.print();
-	System.out.println("Sunrise: " + sunriseTimeslot() + " Sunset: " + sunsetTimeslot() + " Noon: " + noonTimeslot());
+	super.print(sink);
+	sink.solarTimeslots(sunriseTimeslot(), sunsetTimeslot(), noonTimeslot());
     }
 }
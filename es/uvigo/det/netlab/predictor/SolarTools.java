@@ -3,6 +3,7 @@ package es.uvigo.det.netlab.predictor;
 import java.net.URL;
 import java.net.HttpURLConnection;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;  
 import java.util.Date;
@@ -20,33 +21,50 @@ public final class SolarTools
     private static String formatHttpAPI = "yyyyMMdd";
     private static String formatISO8601 = "yyyy-MM-dd'T'HH:mm:ss+'00:00'";
 
+    /**
+     * The base URL of the sunrise and sunset times API
+     */
+    public static final String API_URL = "https://api.sunrise-sunset.org/json";
+
+    /**
+     * The connect and read timeouts of the HTTP requests in milliseconds
+     */
+    private static final int HTTP_TIMEOUT = 5000;
+
     private SolarTools () {}
     
     /**
      * Makes a HTTP request to the sunset and sunrise times API.
      *
+     * @param  apiUrl    the base URL of the API
      * @param  date      the date in YYYY-MM-DD or YYYYMMDD format
      * @param  latitude  the latitude in decimal degrees
      * @param  longitude the longitude in decimal degrees
      * @return the json response to the API request
+     * @throws IOException if the request fails or is not successful
      */
-    private static String sunriseSunsetHttpRequest (String date, double latitude, double longitude) throws Exception
+    private static String sunriseSunsetHttpRequest (String apiUrl, String date, double latitude, double longitude) throws IOException
     {
-	String jsonResponse = "";
-	URL url = new URL("https://api.sunrise-sunset.org/json?lat=" + latitude + "&lng=" + longitude + "&date=" + date + "&formatted=0");
+	URL url = new URL(apiUrl + "?lat=" + latitude + "&lng=" + longitude + "&date=" + date + "&formatted=0");
 	HttpURLConnection con = (HttpURLConnection) url.openConnection();
 	con.setRequestMethod("GET");
-	if (con.getResponseCode() == 200) {
-	    BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-	    String inputLine;
-	    StringBuffer response = new StringBuffer();
-	    while ((inputLine = in.readLine()) != null) {
-		response.append(inputLine);
+	con.setConnectTimeout(HTTP_TIMEOUT);
+	con.setReadTimeout(HTTP_TIMEOUT);
+	try {
+	    if (con.getResponseCode() != 200) {
+		throw new IOException("HTTP response code " + con.getResponseCode());
+	    }
+	    StringBuilder response = new StringBuilder();
+	    try (BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()))) {
+		String inputLine;
+		while ((inputLine = in.readLine()) != null) {
+		    response.append(inputLine);
+		}
 	    }
-	    in.close();
-	    jsonResponse = response.toString();
+	    return response.toString();
+	} finally {
+	    con.disconnect();
 	}
-	return jsonResponse;
     }
      
     /**
@@ -58,9 +76,23 @@ public final class SolarTools
      * @return a Date array of length 2 with the corresponding sunrise and sunset times
      */   
     public static Date[] sunriseSunsetTimesHttp(Date date, double latitude, double longitude) throws Exception
+    {
+	return sunriseSunsetTimesHttp(API_URL, date, latitude, longitude);
+    }
+
+    /**
+     * Obtains sunset and sunrise times for a given date, latitude and longitude using the API at the given URL.
+     *
+     * @param  apiUrl    the base URL of the API (sunrise-sunset.org/api compatible)
+     * @param  date      the date
+     * @param  latitude  the latitude in decimal degrees
+     * @param  longitude the longitude in decimal degrees
+     * @return a Date array of length 2 with the corresponding sunrise and sunset times
+     */   
+    public static Date[] sunriseSunsetTimesHttp(String apiUrl, Date date, double latitude, double longitude) throws Exception
     {
 	SimpleDateFormat dateFormat = new SimpleDateFormat(formatHttpAPI);
-	String jsonResponse = sunriseSunsetHttpRequest(dateFormat.format(date), latitude, longitude);
+	String jsonResponse = sunriseSunsetHttpRequest(apiUrl, dateFormat.format(date), latitude, longitude);
 	String[] responseFields = jsonResponse.split("\"", 11);
 	SimpleDateFormat dateFormatISO8601 = new SimpleDateFormat(formatISO8601);
 	dateFormatISO8601.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -0,0 +1,154 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class implements the streaming mode of the simulator: samples of the current day are fed one at a time
+ * and the predictions for the configured horizons are returned as soon as every sample arrives.
+ *
+ * The predictor module is created once and then kept up to date with the new samples, so that only the state
+ * it needs is maintained (the window sums of WEP, the residuals of ARMA or the GAP factor of D-WCMA and UD-WCMA)
+ * and every sample costs O(horizon) instead of rescanning the current data. The predictions are the same ones
+ * the challenge mode computes for the same samples and trace pool, provided that the samples arrive every
+ * timeslot step (the prediction step must be a multiple of it).
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public class StreamingPredictor
+{
+    /**
+     * The simulator configuration
+     */
+    private Configuration config;
+
+    /**
+     * The data list with the samples received so far
+     */
+    private DataList currentData;
+
+    /**
+     * The analyzer module with the trace pool
+     */
+    private AnalyzerModule analyzer;
+
+    /**
+     * The analyzer module used to obtain the most similar past day for UD-WCMA predictions
+     */
+    private AnalyzerModule udwcmaAnalyzer;
+
+    /**
+     * The factory of the predictor module
+     */
+    private PredictorRegistry.Factory factory;
+
+    /**
+     * The predictor module (created at the initial timeslot)
+     */
+    private PredictorModule predictor;
+
+    /**
+     * The initial timeslot of the predictions
+     */
+    private int initialTimeslot;
+
+    /**
+     * The final timeslot of the predictions
+     */
+    private int finalTimeslot;
+
+    /**
+     * The predictions for every horizon (reused by onSample)
+     */
+    private double[] predictions;
+
+    /**
+     * Creates a new streaming predictor.
+     *
+     * With solar traces, the number of entries and the last timeslot of the day are taken from the first trace of
+     * the pool (timeslots in minutes are assumed if the pool is empty).
+     *
+     * @param  config    the simulator configuration
+     * @param  date      the date of the current day
+     * @param  tracePool the data lists of the trace pool
+     * @throws IllegalArgumentException if the prediction timeslots are not valid for the current day or the
+     *                                  prediction step is not a multiple of the timeslot step
+     */
+    public StreamingPredictor (Configuration config, Date date, List<DataList> tracePool)
+    {
+	if (config.predictionStep % config.timeslotStep != 0) {
+	    throw new IllegalArgumentException("Prediction step not a multiple of the timeslot step!");
+	}
+	this.config = config;
+	currentData = config.newDataList("streaming.trace", date);
+	if (EnergyPredictor.solarTraces) {
+	    if (tracePool.isEmpty()) {
+		((SolarDataList) currentData).setDayLength(1440 / config.timeslotStep, 1440);
+	    } else {
+		DataList dayList = tracePool.get(0);
+		((SolarDataList) currentData).setDayLength(dayList.size(), dayList.getTimeslot(dayList.size() - 1));
+	    }
+	}
+	int[] timeslots = Simulation.predictionTimeslots(config, currentData);
+	initialTimeslot = timeslots[0];
+	finalTimeslot = timeslots[1];
+	analyzer = Simulation.newAnalyzer(config);
+	factory = PredictorRegistry.get(config.predictorMode);
+	if (config.predictorMode.equals("udwcma")) {
+	    udwcmaAnalyzer = new MaeAnalyzerModule(1);
+	}
+	for (DataList traceList : tracePool) {
+	    analyzer.add(traceList);
+	    if (udwcmaAnalyzer != null) {
+		udwcmaAnalyzer.add(traceList);
+	    }
+	}
+	predictions = new double[config.predictionHorizon / config.predictionStep];
+    }
+
+    /**
+     * Returns the data list with the samples received so far.
+     *
+     * @return the data list with the samples received so far
+     */
+    public DataList currentData ()
+    {
+	return currentData;
+    }
+
+    /**
+     * Appends a new sample and returns the predictions for the configured horizons (the first one for the
+     * timeslot following the sample by the prediction step). Horizons beyond the final timeslot are omitted.
+     *
+     * @param  timeslot the timeslot of the sample (samples must arrive in order)
+     * @param  value    the data value of the sample
+     * @return the predictions for every horizon, or null if no predictions are made at the given timeslot
+     */
+    public double[] onSample (int timeslot, double value)
+    {
+	if (predictor != null) {
+	    predictor.onSample(timeslot, value);
+	} else {
+	    currentData.addEntry(value, timeslot);
+	}
+	if (timeslot < initialTimeslot || timeslot >= finalTimeslot || (timeslot - initialTimeslot) % config.timeslotStep != 0) {
+	    return null;
+	}
+
+	DataList similarList = analyzer.mostSimilarList(currentData, timeslot, config.timeslotWindow);
+	if (similarList == null) {
+	    EnergyPredictor.printError("Null similar list!");
+	}
+	if (predictor == null) {
+	    predictor = factory.create(config, currentData, similarList, analyzer, udwcmaAnalyzer, timeslot);
+	} else {
+	    factory.reset(predictor, config, similarList, analyzer, udwcmaAnalyzer, timeslot);
+	}
+
+	predictor.predict(config.predictionStep, predictions);
+	int numHorizons = Math.min(predictions.length, (finalTimeslot - timeslot) / config.predictionStep);
+	return Arrays.copyOf(predictions, numHorizons);
+    }
+}
@@ -0,0 +1,236 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class implements a persistent cache of the sunrise and sunset times obtained from the sunrise-sunset.org
+ * API (SolarTools.sunriseSunsetTimesHttp), keyed by day, latitude and longitude.
+ *
+ * Every successful request is appended to the cache file, so that later runs (or air-gapped nodes with a copied
+ * cache file) do not need the network. Missing days can be prefetched concurrently with a bounded number of
+ * requests in flight. The days whose request fails fall back to the analytic SolarTools.sunriseSunsetTimes,
+ * and after MAX_FAILURES consecutive failed requests the cache warns once and stops making requests (offline
+ * mode).
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class SunriseSunsetCache
+{
+    /**
+     * The number of consecutive failed requests after which no more requests are made
+     */
+    public static final int MAX_FAILURES = 3;
+
+    /**
+     * The cache file
+     */
+    private final File file;
+
+    /**
+     * The base URL of the API
+     */
+    private final String apiUrl;
+
+    /**
+     * The maximum number of requests in flight while prefetching
+     */
+    private final int maxInFlight;
+
+    /**
+     * The sunrise and sunset instants (milliseconds since the epoch) of every cached day
+     */
+    private final Map<String, long[]> entries = new ConcurrentHashMap<String, long[]>();
+
+    /**
+     * The number of consecutive failed requests
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * No more requests are made if true
+     */
+    private volatile boolean offline;
+
+    /**
+     * Creates a new cache, loading the entries of the cache file if it exists.
+     *
+     * @param  file        the cache file
+     * @param  apiUrl      the base URL of the API
+     * @param  maxInFlight the maximum number of requests in flight while prefetching
+     * @throws IOException if the cache file cannot be read or is not valid
+     */
+    public SunriseSunsetCache (File file, String apiUrl, int maxInFlight) throws IOException
+    {
+	this.file = file;
+	this.apiUrl = apiUrl;
+	this.maxInFlight = maxInFlight > 0 ? maxInFlight : 1;
+	if (!file.exists()) {
+	    return;
+	}
+	try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		String[] fields = line.trim().split("\\s+");
+		if (fields.length != 5) {
+		    continue;
+		}
+		entries.put(fields[0] + " " + fields[1] + " " + fields[2], new long[] {Long.parseLong(fields[3]), Long.parseLong(fields[4])});
+	    }
+	} catch (NumberFormatException e) {
+	    throw new IOException("invalid sunrise/sunset cache " + file.getPath());
+	}
+    }
+
+    /**
+     * Returns the key of the given day and location.
+     */
+    private static String key (Date date, double latitude, double longitude)
+    {
+	return Ephemeris.day(date) + " " + latitude + " " + longitude;
+    }
+
+    /**
+     * Returns the number of cached days.
+     *
+     * @return the number of cached days
+     */
+    public int size ()
+    {
+	return entries.size();
+    }
+
+    /**
+     * Returns true if no more requests are made (MAX_FAILURES consecutive requests failed).
+     *
+     * @return true if no more requests are made
+     */
+    public boolean isOffline ()
+    {
+	return offline;
+    }
+
+    /**
+     * Returns the sunrise and sunset times for a given date, latitude and longitude: the cached ones, the ones
+     * obtained from the API, or the analytic ones if the API is not available.
+     *
+     * @param  date      the date
+     * @param  latitude  the latitude in decimal degrees
+     * @param  longitude the longitude in decimal degrees
+     * @return a Date array of length 2 with the corresponding sunrise and sunset times
+     */
+    public Date[] sunriseSunsetTimes (Date date, double latitude, double longitude)
+    {
+	long[] instants = entries.get(key(date, latitude, longitude));
+	if (instants == null) {
+	    instants = fetch(date, latitude, longitude);
+	}
+	if (instants == null) {
+	    return SolarTools.sunriseSunsetTimes(date, latitude, longitude);
+	}
+	return new Date[] {new Date(instants[0]), new Date(instants[1])};
+    }
+
+    /**
+     * Requests the sunrise and sunset times of the given day from the API and stores them in the cache.
+     *
+     * @return the sunrise and sunset instants, or null if the request failed
+     */
+    private long[] fetch (Date date, double latitude, double longitude)
+    {
+	if (offline) {
+	    return null;
+	}
+	long[] instants;
+	try {
+	    Date[] sunriseSunsetDates = SolarTools.sunriseSunsetTimesHttp(apiUrl, date, latitude, longitude);
+	    instants = new long[] {sunriseSunsetDates[0].getTime(), sunriseSunsetDates[1].getTime()};
+	} catch (Exception e) {
+	    if (failures.incrementAndGet() >= MAX_FAILURES) {
+		goOffline(e);
+	    }
+	    return null;
+	}
+	failures.set(0);
+	String key = key(date, latitude, longitude);
+	if (entries.putIfAbsent(key, instants) == null) {
+	    append(key, instants);
+	}
+	return instants;
+    }
+
+    /**
+     * Stops making requests, warning about it only once.
+     */
+    private synchronized void goOffline (Exception cause)
+    {
+	if (!offline) {
+	    offline = true;
+	    System.err.println("WARNING: sunrise-sunset API not available (" + cause + "), using analytic sunrise/sunset times");
+	}
+    }
+
+    /**
+     * Appends a new entry to the cache file (the cache still works in memory if it cannot be written).
+     */
+    private synchronized void append (String key, long[] instants)
+    {
+	try (FileWriter writer = new FileWriter(file, true)) {
+	    writer.write(key + " " + instants[0] + " " + instants[1] + "\n");
+	} catch (IOException e) {
+	    System.err.println("WARNING: cannot write sunrise/sunset cache " + file.getPath());
+	}
+    }
+
+    /**
+     * Requests concurrently the sunrise and sunset times of the given days that are not cached yet,
+     * with at most maxInFlight requests in flight.
+     *
+     * @param dates     the dates
+     * @param latitude  the latitude in decimal degrees
+     * @param longitude the longitude in decimal degrees
+     */
+    public void prefetch (List<Date> dates, final double latitude, final double longitude)
+    {
+	Map<String, Date> missing = new LinkedHashMap<String, Date>();
+	for (Date date : dates) {
+	    String key = key(date, latitude, longitude);
+	    if (!entries.containsKey(key)) {
+		missing.putIfAbsent(key, date);
+	    }
+	}
+	if (missing.isEmpty() || offline) {
+	    return;
+	}
+	ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxInFlight, missing.size()));
+	List<Date> missingDates = new ArrayList<Date>(missing.values());
+	for (final Date date : missingDates) {
+	    executor.execute(new Runnable() {
+		    public void run () {
+			fetch(date, latitude, longitude);
+		    }
+		});
+	}
+	executor.shutdown();
+	try {
+	    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	} catch (InterruptedException e) {
+	    executor.shutdownNow();
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -0,0 +1,293 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class implements a hyper-parameter sweep of the predictor module.
+ *
+ * The values of the swept parameters (SWEEP lines of the configuration file) define a grid of configurations
+ * that is fully explored or sampled (randomly or by Latin hypercube sampling). Every configuration is simulated
+ * in parallel on a fork-join pool against a trace pool that is loaded once and shared (read-only), using either
+ * the challenge file or, in backtest mode, every day of the trace directory. Configurations are finally ranked
+ * by the selected error measure.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class Sweep
+{
+    private static final long MILLIS_PER_DAY = EnergyPredictor.SECONDS_PER_DAY * 1000L;
+
+    private Sweep () {}
+
+    /**
+     * Runs the sweep and writes the ranking of the configurations to the result sink of the simulator.
+     *
+     * @param config   the simulator configuration
+     * @param backtest use every day of the trace directory as challenge if true
+     */
+    public static void run (Configuration config, final boolean backtest)
+    {
+	List<String> parameters = config.sweepParameters;
+	if (parameters.isEmpty()) {
+	    EnergyPredictor.printError("Sweep parameters not specified!");
+	}
+	int numHorizons = config.predictionHorizon / config.predictionStep;
+	if (config.sweepHorizon > 0 && (config.sweepHorizon % config.predictionStep != 0 || config.sweepHorizon > config.predictionHorizon)) {
+	    EnergyPredictor.printError("Invalid sweep horizon!");
+	}
+
+	// Configurations to be simulated
+	List<int[]> samples = sample(config);
+	final List<Configuration> configs = new ArrayList<Configuration>(samples.size());
+	for (int[] sample : samples) {
+	    Configuration sampleConfig = config.copy();
+	    for (int p = 0; p < parameters.size(); p++) {
+		try {
+		    sampleConfig.set(parameters.get(p), config.sweepValues.get(p)[sample[p]]);
+		} catch (IllegalArgumentException e) {
+		    EnergyPredictor.printError("Sweep: " + e.getMessage() + "!");
+		}
+	    }
+	    configs.add(sampleConfig);
+	}
+
+	// Shared trace pool
+	final DataList initChallengeList = backtest ? null : EnergyPredictor.readChallenge(config);
+	final DataList challengeList = backtest ? null : EnergyPredictor.resizeChallenge(config, initChallengeList);
+	final DataList[] traceLists;
+	if (backtest || !config.analyzerMode.equals("void")) {
+	    traceLists = TraceLoader.load(EnergyPredictor.openTraceCatalog(config).entries(), config);
+	} else {
+	    traceLists = new DataList[0];
+	}
+	ResultSink sink = EnergyPredictor.resultSink;
+	sink.message("\nSweep configurations: " + configs.size() + " (" + config.sweepSampling + ")");
+	sink.message("Sweep trace pool size: " + traceLists.length + "\n");
+
+	List<Callable<ErrorMetrics[]>> tasks = new ArrayList<Callable<ErrorMetrics[]>>(configs.size());
+	for (final Configuration sampleConfig : configs) {
+	    tasks.add(new Callable<ErrorMetrics[]>() {
+		    public ErrorMetrics[] call () {
+			return backtest ? Backtest.evaluate(sampleConfig, traceLists) : simulate(sampleConfig, challengeList, initChallengeList, traceLists);
+		    }
+		});
+	}
+	ForkJoinPool forkJoinPool = new ForkJoinPool(config.parallelism);
+	final List<ErrorMetrics[]> results = new ArrayList<ErrorMetrics[]>(configs.size());
+	String[] failures = new String[configs.size()];
+	try {
+	    List<Future<ErrorMetrics[]>> futures = forkJoinPool.invokeAll(tasks);
+	    for (int i = 0; i < futures.size(); i++) {
+		try {
+		    results.add(futures.get(i).get());
+		} catch (ExecutionException e) {
+		    // The configuration is ranked last with the reason of the failure
+		    results.add(null);
+		    failures[i] = String.valueOf(e.getCause());
+		}
+	    }
+	} catch (InterruptedException e) {
+	    EnergyPredictor.printError("Sweep interrupted!");
+	} finally {
+	    forkJoinPool.shutdown();
+	}
+
+	// Ranking (undefined scores last, ties keep the sampling order)
+	final double[] scores = new double[configs.size()];
+	List<Integer> ranking = new ArrayList<Integer>(configs.size());
+	for (int i = 0; i < configs.size(); i++) {
+	    scores[i] = score(results.get(i), config.sweepMetric, config.sweepHorizon / config.predictionStep);
+	    ranking.add(i);
+	}
+	Collections.sort(ranking, new Comparator<Integer>() {
+		public int compare (Integer i1, Integer i2) {
+		    boolean undefined1 = Double.isNaN(scores[i1]) || Double.isInfinite(scores[i1]);
+		    boolean undefined2 = Double.isNaN(scores[i2]) || Double.isInfinite(scores[i2]);
+		    if (undefined1 || undefined2) {
+			return Boolean.compare(undefined1, undefined2);
+		    }
+		    return Double.compare(scores[i1], scores[i2]);
+		}
+	    });
+	String metricLabel = config.sweepMetric.toUpperCase() + (config.sweepHorizon > 0 ? "@" + config.sweepHorizon : "");
+	for (int r = 0; r < ranking.size(); r++) {
+	    int i = ranking.get(r);
+	    if (failures[i] != null) {
+		sink.message("Rank: - " + metricLabel + ": failed (" + failures[i] + ") " + describe(config, samples.get(i)));
+	    } else if (results.get(i) == null) {
+		sink.message("Rank: - " + metricLabel + ": skipped " + describe(config, samples.get(i)));
+	    } else {
+		sink.message(String.format("Rank: %d %s: %.3f %s", r + 1, metricLabel, scores[i], describe(config, samples.get(i))));
+	    }
+	}
+	int best = ranking.get(0);
+	if (results.get(best) != null) {
+	    sink.message("\nBest configuration: " + describe(config, samples.get(best)) + "\n");
+	    for (int h = 0; h < numHorizons; h++) {
+		results.get(best)[h].print(sink);
+	    }
+	}
+    }
+
+    /**
+     * Simulates the challenge file using the given configuration and the trace pool of the challenge day.
+     *
+     * @return the error measures of the challenge, or null if it cannot be simulated
+     */
+    private static ErrorMetrics[] simulate (Configuration config, DataList challengeList, DataList initChallengeList, DataList[] traceLists)
+    {
+	Simulation simulation;
+	try {
+	    simulation = new Simulation(config, challengeList, initChallengeList);
+	} catch (Simulation.InvalidChallengeException e) {
+	    return null;
+	}
+	if (!config.analyzerMode.equals("void")) {
+	    // Same date filtering as the trace catalog of the challenge mode
+	    long challengeTime = challengeList.getDate().getTime();
+	    for (DataList traceList : traceLists) {
+		long diffDays = (challengeTime - traceList.getDate().getTime()) / MILLIS_PER_DAY;
+		if (config.numPreviousDays <= 0 || (diffDays > 0 && diffDays <= config.numPreviousDays)) {
+		    simulation.addTrace(traceList);
+		}
+	    }
+	    if (simulation.poolSize() == 0) {
+		return null;
+	    }
+	}
+	try {
+	    simulation.run(false);
+	} catch (Simulation.InvalidChallengeException e) {
+	    return null;
+	}
+	return simulation.analyze(null);
+    }
+
+    /**
+     * Returns the score of a configuration: the selected error measure for the given horizon index,
+     * or its average over all the horizons if the index is 0.
+     */
+    private static double score (ErrorMetrics[] metrics, String metric, int horizonIndex)
+    {
+	if (metrics == null) {
+	    return Double.NaN;
+	}
+	if (horizonIndex > 0) {
+	    return metrics[horizonIndex - 1].get(metric);
+	}
+	double sum = 0.0;
+	for (ErrorMetrics horizonMetrics : metrics) {
+	    sum += horizonMetrics.get(metric);
+	}
+	return sum / metrics.length;
+    }
+
+    /**
+     * Returns the indexes of the parameter values of every configuration to be simulated.
+     */
+    private static List<int[]> sample (Configuration config)
+    {
+	int numParameters = config.sweepParameters.size();
+	int[] sizes = new int[numParameters];
+	long gridSize = 1;
+	for (int p = 0; p < numParameters; p++) {
+	    sizes[p] = config.sweepValues.get(p).length;
+	    gridSize *= sizes[p];
+	    if (gridSize > Integer.MAX_VALUE) {
+		EnergyPredictor.printError("Sweep grid too large!");
+	    }
+	}
+	List<int[]> samples = new ArrayList<int[]>();
+	if (config.sweepSampling.equals("grid") || config.sweepSamples >= gridSize) {
+	    for (long index = 0; index < gridSize; index++) {
+		samples.add(decode(index, sizes));
+	    }
+	    return samples;
+	}
+	Random random = new Random(config.sweepSeed);
+	int numSamples = config.sweepSamples;
+	Set<Long> indexes = new LinkedHashSet<Long>();
+	if (config.sweepSampling.equals("random")) {
+	    while (indexes.size() < numSamples) {
+		indexes.add((long) (random.nextDouble() * gridSize));
+	    }
+	} else {
+	    // Duplicated grid points (more samples than values) are simulated only once, so the missing samples
+	    // are drawn from a new Latin hypercube until the requested number of samples is reached
+	    while (indexes.size() < numSamples) {
+		latinHypercube(random, sizes, numSamples - indexes.size(), indexes);
+	    }
+	}
+	for (long index : indexes) {
+	    samples.add(decode(index, sizes));
+	}
+	return samples;
+    }
+
+    /**
+     * Adds the grid indexes of the given number of samples drawn by Latin hypercube sampling: every parameter
+     * range is split into numSamples strata, each one used exactly once.
+     */
+    private static void latinHypercube (Random random, int[] sizes, int numSamples, Set<Long> indexes)
+    {
+	int numParameters = sizes.length;
+	int[][] strata = new int[numParameters][numSamples];
+	for (int p = 0; p < numParameters; p++) {
+	    for (int k = 0; k < numSamples; k++) {
+		strata[p][k] = k;
+	    }
+	    for (int k = numSamples - 1; k > 0; k--) {
+		int j = random.nextInt(k + 1);
+		int aux = strata[p][k];
+		strata[p][k] = strata[p][j];
+		strata[p][j] = aux;
+	    }
+	}
+	for (int k = 0; k < numSamples; k++) {
+	    long index = 0;
+	    for (int p = 0; p < numParameters; p++) {
+		int valueIndex = (int) ((strata[p][k] + random.nextDouble()) * sizes[p] / numSamples);
+		index = index * sizes[p] + Math.min(valueIndex, sizes[p] - 1);
+	    }
+	    indexes.add(index);
+	}
+    }
+
+    /**
+     * Returns the indexes of the parameter values of the given grid point (the last parameter varies fastest).
+     */
+    private static int[] decode (long index, int[] sizes)
+    {
+	int[] sample = new int[sizes.length];
+	for (int p = sizes.length - 1; p >= 0; p--) {
+	    sample[p] = (int) (index % sizes[p]);
+	    index /= sizes[p];
+	}
+	return sample;
+    }
+
+    /**
+     * Returns a description of the parameter values of the given configuration.
+     */
+    private static String describe (Configuration config, int[] sample)
+    {
+	StringBuilder description = new StringBuilder();
+	for (int p = 0; p < sample.length; p++) {
+	    double value = config.sweepValues.get(p)[sample[p]];
+	    description.append(p > 0 ? " " : "").append(config.sweepParameters.get(p)).append("=");
+	    description.append(value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value));
+	}
+	return description.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.util.Formatter;
+
+/**
+ * This class implements the result sink that writes the results in the console format of the simulator
+ * through a large buffer (no synchronization nor flushing per line).
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class TextResultSink implements ResultSink
+{
+    /**
+     * The size of the output buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The buffered output
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * The formatter writing into the buffered output
+     */
+    private final Formatter formatter;
+
+    /**
+     * The line separator
+     */
+    private final String newLine = System.lineSeparator();
+
+    /**
+     * Creates a new text result sink.
+     *
+     * @param out the output stream
+     */
+    public TextResultSink (OutputStream out)
+    {
+	writer = new BufferedWriter(new OutputStreamWriter(out), BUFFER_SIZE);
+	formatter = new Formatter(writer);
+    }
+
+    /**
+     * Writes the given text.
+     */
+    private void write (String text)
+    {
+	try {
+	    writer.write(text);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    /**
+     * Writes the given formatted text.
+     */
+    private void format (String format, Object... args)
+    {
+	formatter.format(format, args);
+	if (formatter.ioException() != null) {
+	    throw new UncheckedIOException(formatter.ioException());
+	}
+    }
+
+    public void message (String text)
+    {
+	write(text);
+	write(newLine);
+    }
+
+    public void dataList (String label, int numEntries, double energyHarvested)
+    {
+	write(newLine);
+	write("DataList: " + label + " Data entries: " + numEntries + " Energy harvested: " + energyHarvested);
+	write(newLine);
+	write(newLine);
+    }
+
+    public void dataEntry (int timeslot, double value, double weight)
+    {
+	format("Timeslot: %d Value: %.6f Weight: %.6f %n", timeslot, value, weight);
+    }
+
+    public void endDataList ()
+    {
+	write(newLine);
+    }
+
+    public void solarTimeslots (int sunrise, int sunset, int noon)
+    {
+	message("Sunrise: " + sunrise + " Sunset: " + sunset + " Noon: " + noon);
+    }
+
+    public void prediction (int horizon, int timeslot, double actual, double predicted, double absError, double perError)
+    {
+	format("Horizon: %d Timeslot: %d Actual: %.3f Predicted: %.3f AbsError: %.3f PerError: %.3f %n",
+	       horizon, timeslot, actual, predicted, absError, perError);
+    }
+
+    public void errorMetrics (String challenge, ErrorMetrics metrics)
+    {
+	if (challenge != null) {
+	    format("Challenge: %s Horizon: %d MAE: %.3f MAPE: %.3f RMSE: %.3f MASE: %.3f MADP: %.3f %n", challenge,
+		   metrics.getHorizon(), metrics.getMae(), metrics.getMape(), metrics.getRmse(), metrics.getMase(), metrics.getMadp());
+	} else {
+	    format("Horizon: %d MAE: %.3f MAPE: %.3f RMSE: %.3f MASE: %.3f MADP: %.3f %n%n",
+		   metrics.getHorizon(), metrics.getMae(), metrics.getMape(), metrics.getRmse(), metrics.getMase(), metrics.getMadp());
+	}
+    }
+
+    public void flush ()
+    {
+	try {
+	    writer.flush();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    public void close ()
+    {
+	try {
+	    writer.close();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+}
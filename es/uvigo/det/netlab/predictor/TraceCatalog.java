@@ -0,0 +1,362 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+/**
+ * This class implements a persistent catalog of the trace files stored in a directory.
+ *
+ * The catalog is saved in the trace directory itself and lists, for every trace file, its date, name,
+ * size, modification time, number of timeslots and CRC-32 checksum. It is only rebuilt (incrementally)
+ * when the modification time of the directory changes, so unchanged directories are neither listed
+ * nor their file names parsed again.
+ *
+ * The catalog is written to a temporary file that is then atomically moved into place, so concurrent runs
+ * on the same directory never read a partially written catalog. The modification time of the directory
+ * after the move is stored as the modification time of the catalog file, and the header holds the number
+ * of entries, so a catalog that does not list all of them is rebuilt.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class TraceCatalog
+{
+    private static final String HEADER = "# EnergyPredictor trace catalog v2";
+    private static final long MILLIS_PER_DAY = EnergyPredictor.SECONDS_PER_DAY * 1000L;
+
+    /**
+     * This class implements a trace catalog entry.
+     */
+    public static final class Entry
+    {
+	private final long date;
+	private final File file;
+	private final long size;
+	private final long lastModified;
+	private final int slotCount;
+	private final long checksum;
+
+	private Entry (long date, File file, long size, long lastModified, int slotCount, long checksum)
+	{
+	    this.date = date;
+	    this.file = file;
+	    this.size = size;
+	    this.lastModified = lastModified;
+	    this.slotCount = slotCount;
+	    this.checksum = checksum;
+	}
+
+	/**
+	 * Returns the date of the trace file.
+	 *
+	 * @return the date of the trace file
+	 */
+	public Date getDate ()
+	{
+	    return new Date(date);
+	}
+
+	/**
+	 * Returns the trace file.
+	 *
+	 * @return the trace file
+	 */
+	public File getFile ()
+	{
+	    return file;
+	}
+
+	/**
+	 * Returns the number of timeslots stored in the trace file.
+	 *
+	 * @return the number of timeslots stored in the trace file
+	 */
+	public int getSlotCount ()
+	{
+	    return slotCount;
+	}
+
+	/**
+	 * Returns the CRC-32 checksum of the trace file.
+	 *
+	 * @return the CRC-32 checksum of the trace file
+	 */
+	public long getChecksum ()
+	{
+	    return checksum;
+	}
+    }
+
+    /**
+     * The catalog entries sorted by date and file name.
+     */
+    private final List<Entry> entries;
+
+    private TraceCatalog (List<Entry> entries)
+    {
+	this.entries = entries;
+    }
+
+    /**
+     * Returns the catalog file used for the given trace directory and extension.
+     *
+     * @param  tracePath      the trace directory
+     * @param  traceExtension the trace file extension
+     * @return the catalog file used for the given trace directory and extension
+     */
+    public static File catalogFile (File tracePath, String traceExtension)
+    {
+	return new File(tracePath, "." + traceExtension + ".catalog");
+    }
+
+    /**
+     * Opens the catalog of the given trace directory, building or updating it if required.
+     *
+     * @param  tracePath       the trace directory
+     * @param  traceExtension  the trace file extension
+     * @param  traceDateFormat the format used to obtain the date from the trace file name
+     * @return the catalog of the given trace directory
+     * @throws IOException if a trace file cannot be read or its date cannot be obtained
+     */
+    public static TraceCatalog open (File tracePath, final String traceExtension, String traceDateFormat) throws IOException
+    {
+	File catalogFile = catalogFile(tracePath, traceExtension);
+	String[] header = {HEADER, "# extension\t" + traceExtension, "# dateFormat\t" + traceDateFormat,
+			   "# timeZone\t" + TimeZone.getDefault().getID()};
+	Map<String, Entry> cachedEntries = new HashMap<String, Entry>();
+	boolean upToDate = readCatalog(catalogFile, tracePath, header, cachedEntries);
+	if (upToDate) {
+	    return new TraceCatalog(sort(new ArrayList<Entry>(cachedEntries.values())));
+	}
+
+	// Incremental update: only new or modified trace files are parsed and checksummed
+	File[] traceFiles = tracePath.listFiles(new FileFilter() {
+		public boolean accept (File file) {
+		    return file.getName().endsWith(traceExtension);
+		}
+	    });
+	if (traceFiles == null) {
+	    throw new IOException("cannot list trace path " + tracePath.getPath());
+	}
+	SimpleDateFormat traceDateParser = new SimpleDateFormat(traceDateFormat);
+	List<Entry> entries = new ArrayList<Entry>(traceFiles.length);
+	for (File f : traceFiles) {
+	    Entry entry = cachedEntries.get(f.getName());
+	    if (entry == null || entry.size != f.length() || entry.lastModified != f.lastModified()) {
+		Date traceDate;
+		try {
+		    traceDate = traceDateParser.parse(f.getName());
+		} catch (Exception e) {
+		    throw new IOException("Error while obtaining trace date of " + f.getName() + "!");
+		}
+		entry = scan(f, traceDate.getTime());
+	    }
+	    entries.add(entry);
+	}
+	sort(entries);
+	writeCatalog(catalogFile, tracePath, header, entries);
+	return new TraceCatalog(entries);
+    }
+
+    /**
+     * Reads the entries of a catalog file (none if the catalog file does not list all its entries).
+     *
+     * @return true if the catalog file exists, matches the given header, lists all its entries and was written
+     *         after the last change of the trace directory, and is therefore up to date
+     */
+    private static boolean readCatalog (File catalogFile, File tracePath, String[] header, Map<String, Entry> cachedEntries)
+    {
+	if (!catalogFile.isFile()) {
+	    return false;
+	}
+	boolean upToDate = catalogFile.lastModified() == tracePath.lastModified();
+	try {
+	    BufferedReader catalogReader = new BufferedReader(new FileReader(catalogFile));
+	    try {
+		for (int i = 0; i < header.length; i++) {
+		    String line = catalogReader.readLine();
+		    if (line == null || !line.equals(header[i])) {
+			// Different format, extension, date format or time zone: rebuild from scratch
+			return false;
+		    }
+		}
+		String line = catalogReader.readLine();
+		if (line == null || !line.startsWith("# entries\t")) {
+		    return false;
+		}
+		int numEntries = Integer.parseInt(line.substring(line.indexOf('\t') + 1));
+		while ((line = catalogReader.readLine()) != null) {
+		    String[] fields = line.split("\t");
+		    if (fields.length < 6) {
+			continue;
+		    }
+		    Entry entry = new Entry(Long.parseLong(fields[0]), new File(tracePath, fields[1]), Long.parseLong(fields[2]),
+					    Long.parseLong(fields[3]), Integer.parseInt(fields[4]), Long.parseLong(fields[5], 16));
+		    cachedEntries.put(fields[1], entry);
+		}
+		if (cachedEntries.size() != numEntries) {
+		    // Incomplete catalog: rebuild from scratch
+		    cachedEntries.clear();
+		    return false;
+		}
+	    } finally {
+		catalogReader.close();
+	    }
+	} catch (IOException | NumberFormatException e) {
+	    cachedEntries.clear();
+	    return false;
+	}
+	return upToDate;
+    }
+
+    /**
+     * Writes the catalog entries into the catalog file (ignoring errors on read-only directories).
+     * The entries are written to a temporary file that is atomically moved into place. The directory modification
+     * time is recorded after the move (as the modification time of the catalog file), so moving the catalog does
+     * not invalidate it.
+     */
+    private static void writeCatalog (File catalogFile, File tracePath, String[] header, List<Entry> entries)
+    {
+	File tempFile = null;
+	try {
+	    tempFile = File.createTempFile(catalogFile.getName(), ".tmp", tracePath);
+	    PrintWriter catalogWriter = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)));
+	    try {
+		for (String line : header) {
+		    catalogWriter.println(line);
+		}
+		catalogWriter.println("# entries\t" + entries.size());
+		for (Entry entry : entries) {
+		    catalogWriter.println(entry.date + "\t" + entry.file.getName() + "\t" + entry.size + "\t" + entry.lastModified +
+					  "\t" + entry.slotCount + "\t" + Long.toHexString(entry.checksum));
+		}
+	    } finally {
+		catalogWriter.close();
+	    }
+	    if (catalogWriter.checkError()) {
+		throw new IOException("cannot write catalog file " + tempFile.getPath());
+	    }
+	    Files.move(tempFile.toPath(), catalogFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	    tempFile = null;
+	    catalogFile.setLastModified(tracePath.lastModified());
+	} catch (IOException e) {
+	    // The catalog will be rebuilt on the next run
+	} finally {
+	    if (tempFile != null) {
+		tempFile.delete();
+	    }
+	}
+    }
+
+    /**
+     * Computes the catalog entry of the given trace file.
+     */
+    private static Entry scan (File traceFile, long date) throws IOException
+    {
+	boolean binaryTrace = BinaryTraceTools.isBinaryTrace(traceFile);
+	CRC32 crc = new CRC32();
+	int slotCount = 0;
+	byte[] buffer = new byte[65536];
+	boolean pendingLine = false;
+	InputStream in = new FileInputStream(traceFile);
+	try {
+	    for (int n; (n = in.read(buffer)) > 0; ) {
+		crc.update(buffer, 0, n);
+		for (int i = 0; i < n && !binaryTrace; i++) {
+		    if (buffer[i] == '\n') {
+			slotCount++;
+			pendingLine = false;
+		    } else {
+			pendingLine = true;
+		    }
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+	if (pendingLine) {
+	    slotCount++;
+	}
+	if (binaryTrace) {
+	    slotCount = BinaryTraceTools.count(traceFile);
+	}
+	return new Entry(date, traceFile, traceFile.length(), traceFile.lastModified(), slotCount, crc.getValue());
+    }
+
+    private static List<Entry> sort (List<Entry> entries)
+    {
+	Collections.sort(entries, new Comparator<Entry>() {
+		public int compare (Entry e1, Entry e2) {
+		    int c = Long.compare(e1.date, e2.date);
+		    return c != 0 ? c : e1.file.getName().compareTo(e2.file.getName());
+		}
+	    });
+	return entries;
+    }
+
+    /**
+     * Returns the number of trace files in the catalog.
+     *
+     * @return the number of trace files in the catalog
+     */
+    public int size ()
+    {
+	return entries.size();
+    }
+
+    /**
+     * Returns all the catalog entries sorted by date.
+     *
+     * @return all the catalog entries sorted by date
+     */
+    public List<Entry> entries ()
+    {
+	return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the catalog entries collected during the given number of days before the specified date.
+     * A zero number of days selects every entry.
+     *
+     * @param  date          the date
+     * @param  numPrevDays   the number of previous days
+     * @return the catalog entries collected during the given number of days before the specified date
+     */
+    public List<Entry> select (Date date, int numPrevDays)
+    {
+	if (numPrevDays <= 0) {
+	    return entries();
+	}
+	long time = date.getTime();
+	// Binary search of the first entry that may fall into the window
+	long firstDate = time - (numPrevDays + 1) * MILLIS_PER_DAY;
+	int low = 0, high = entries.size();
+	while (low < high) {
+	    int mid = (low + high) >>> 1;
+	    if (entries.get(mid).date <= firstDate) {
+		low = mid + 1;
+	    } else {
+		high = mid;
+	    }
+	}
+	List<Entry> selected = new ArrayList<Entry>(numPrevDays);
+	for (int i = low; i < entries.size() && entries.get(i).date < time; i++) {
+	    long diffDays = (time - entries.get(i).date) / MILLIS_PER_DAY;
+	    if (diffDays > 0 && diffDays <= numPrevDays) {
+		selected.add(entries.get(i));
+	    }
+	}
+	return selected;
+    }
+}
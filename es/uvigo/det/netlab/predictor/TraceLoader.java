@@ -0,0 +1,120 @@
+package es.uvigo.det.netlab.predictor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class loads trace files into data lists using a pool of worker threads.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class TraceLoader
+{
+    private TraceLoader () {}
+
+    /**
+     * Returns a new executor service with the specified number and type of threads.
+     *
+     * @param  numThreads     the number of platform threads
+     * @param  virtualThreads use virtual threads (if supported by the JVM) if true
+     * @return a new executor service with the specified number and type of threads
+     */
+    public static ExecutorService newExecutor (int numThreads, boolean virtualThreads)
+    {
+	if (virtualThreads) {
+	    try {
+		return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+	    } catch (Exception e) {
+		// Virtual threads not available: fall back to platform threads
+	    }
+	}
+	return Executors.newFixedThreadPool(numThreads > 0 ? numThreads : 1);
+    }
+
+    /**
+     * Loads the trace files of the given catalog entries into new data lists, in the same order.
+     * Prints an error message and exits if any trace file cannot be read.
+     *
+     * @param  catalogEntries the catalog entries of the trace files
+     * @param  config         the simulator configuration
+     * @return the data lists with the data stored in the trace files
+     */
+    public static DataList[] load (List<TraceCatalog.Entry> catalogEntries, Configuration config)
+    {
+	DataList[] traceLists = new DataList[catalogEntries.size()];
+	File[] traceFiles = new File[catalogEntries.size()];
+	if (EnergyPredictor.solarTraces) {
+	    List<Date> dates = new ArrayList<Date>(catalogEntries.size());
+	    for (TraceCatalog.Entry catalogEntry : catalogEntries) {
+		dates.add(catalogEntry.getDate());
+	    }
+	    config.ephemeris.prefetch(dates, config.latitude, config.longitude);
+	}
+	for (int i = 0; i < traceLists.length; i++) {
+	    TraceCatalog.Entry catalogEntry = catalogEntries.get(i);
+	    traceFiles[i] = catalogEntry.getFile();
+	    traceLists[i] = config.newDataList(traceFiles[i].getName(), catalogEntry.getDate());
+	}
+	int failedIndex = addFiles(traceLists, traceFiles, config.timeslotStep, config.loaderThreads, config.virtualThreads);
+	if (failedIndex >= 0) {
+	    EnergyPredictor.printError(traceFiles[failedIndex].getPath() + " reading error!");
+	}
+	return traceLists;
+    }
+
+    /**
+     * Adds the data stored in each trace file to the corresponding data list.
+     * Files are read concurrently but the data lists are filled in place, so their order is preserved.
+     *
+     * @param  dataLists      the data lists
+     * @param  traceFiles     the trace files (one per data list)
+     * @param  slotStep       the timeslot step
+     * @param  numThreads     the number of worker threads
+     * @param  virtualThreads use virtual threads (if supported by the JVM) if true
+     * @return the index of the first trace file that could not be read, or -1 if all of them were successfully read
+     */
+    public static int addFiles (final DataList[] dataLists, final File[] traceFiles, final int slotStep,
+				int numThreads, boolean virtualThreads)
+    {
+	if (dataLists.length == 0) {
+	    return -1;
+	}
+	if (numThreads <= 1 && !virtualThreads) {
+	    for (int i = 0; i < dataLists.length; i++) {
+		if (dataLists[i].addFile(traceFiles[i], slotStep) == false) {
+		    return i;
+		}
+	    }
+	    return -1;
+	}
+	ExecutorService executor = newExecutor(numThreads, virtualThreads);
+	List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(dataLists.length);
+	for (int i = 0; i < dataLists.length; i++) {
+	    final int index = i;
+	    results.add(executor.submit(new Callable<Boolean>() {
+		    public Boolean call () {
+			return dataLists[index].addFile(traceFiles[index], slotStep);
+		    }
+		}));
+	}
+	int failedIndex = -1;
+	for (int i = 0; i < results.size() && failedIndex < 0; i++) {
+	    try {
+		if (results.get(i).get() == false) {
+		    failedIndex = i;
+		}
+	    } catch (Exception e) {
+		failedIndex = i;
+	    }
+	}
+	executor.shutdownNow();
+	return failedIndex;
+    }
+}
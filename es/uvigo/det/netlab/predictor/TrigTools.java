@@ -1,7 +1,12 @@
 package es.uvigo.det.netlab.predictor;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * This class provides Taylor and Chebyshev approximations of main trigonometric functions.
+ * This class provides Taylor and Chebyshev approximations of main trigonometric functions, as well as
+ * lookup tables with linear interpolation.
+ * Batch variants (array in, array out) evaluate the same series over many arguments at once.
  *
  * @author Sergio Herreria-Alonso 
  * @version 1.0
@@ -11,12 +16,17 @@ public final class TrigTools
     public static final float PI = (float) Math.PI;
 
     public enum SeriesType {
-	TAYLOR, CHEBYSHEV
+	TAYLOR, CHEBYSHEV, TABLE
     }
     public static SeriesType series = SeriesType.TAYLOR;
     
     public static int seriesDegree = 0;
 
+    /**
+     * The number of intervals of the lookup tables (TABLE series)
+     */
+    public static int tableSize = 1024;
+
     private static final float[] sinTaylorCoefficients = {1f, 0.166666667f, 0.008333333f, 0.000198413f, 0.000002756f, 0.000000025f};
     private static final float[] asinTaylorCoefficients = {1f, 0.166666667f, 0.075f, 0.044642857f, 0.030381944f, 0.022372159f, 0.017352764f};
 
@@ -36,7 +46,96 @@ public final class TrigTools
 	{1.016676946f, -0.389181173f, 5.299416308f, -20.80713228f, 40.24503485f, -37.10236483f, 13.22440854f}
     };
     
+    /**
+     * This class holds the lookup tables of a given size: sine samples over [-PI, PI] and arcsine samples
+     * over [-1, 1], both with size + 1 evenly spaced points.
+     */
+    private static final class Table
+    {
+	private final int size;
+	private final float[] sin;
+	private final float[] asin;
+
+	Table (int size)
+	{
+	    this.size = size;
+	    sin = new float[size + 1];
+	    asin = new float[size + 1];
+	    for (int i = 0; i <= size; i++) {
+		sin[i] = (float) Math.sin(-Math.PI + 2 * Math.PI * i / size);
+		asin[i] = (float) Math.asin(-1.0 + 2.0 * i / size);
+	    }
+	}
+    }
+
+    /**
+     * The lookup tables built so far, keyed by size (built lazily and shared by every thread)
+     */
+    private static final Map<Integer, Table> tables = new ConcurrentHashMap<Integer, Table>();
+
+    /**
+     * Scratch buffer of the batch kernels (one per thread)
+     */
+    private static final ThreadLocal<float[]> scratch = ThreadLocal.withInitial(() -> new float[64]);
+
     private TrigTools () {}
+
+    /**
+     * Returns the scratch buffer of the current thread with at least n elements.
+     */
+    private static float[] scratch (int n)
+    {
+	float[] buffer = scratch.get();
+	if (buffer.length < n) {
+	    buffer = new float[Math.max(n, 2 * buffer.length)];
+	    scratch.set(buffer);
+	}
+	return buffer;
+    }
+
+    /**
+     * Returns the lookup tables of the given size.
+     */
+    private static Table table (int size)
+    {
+	if (size < 1) {
+	    throw new IllegalArgumentException("invalid table size " + size);
+	}
+	return tables.computeIfAbsent(size, Table::new);
+    }
+
+    /**
+     * Returns the value interpolated in the given samples at the given position (in intervals from the first one).
+     */
+    private static float interpolate (float[] samples, int size, float position)
+    {
+	if (position <= 0) {
+	    return samples[0];
+	}
+	if (position >= size) {
+	    return samples[size];
+	}
+	int i = (int) position;
+	float fraction = position - i;
+	return samples[i] + fraction * (samples[i + 1] - samples[i]);
+    }
+
+    /**
+     * Reduces the given angles to [-PI, PI] (same reduction as the scalar series).
+     */
+    private static void reduce (float[] in, float[] out, int n)
+    {
+	for (int j = 0; j < n; j++) {
+	    float bangle = in[j];
+	    while (bangle > PI) {
+		bangle -= 2 * PI;
+	    }
+	    while (bangle < -1 * PI) {
+		bangle += 2 * PI;
+	    }
+	    out[j] = bangle;
+	}
+    }
     
     /**
      * Calculates the sine of the given angle using the corresponding Taylor series.
@@ -108,28 +207,197 @@ public final class TrigTools
     {
 	return sinChebyshev(angle, seriesDegree);
     }
+
+    /**
+     * Calculates the sine of the given angle using a lookup table with linear interpolation.
+     *
+     * @param angle the angle (in radians)
+     * @param size  the number of intervals of the table over [-PI, PI]
+     * @return the sine of the given angle
+     */
+    public static float sinTable (float angle, int size)
+    {
+	Table table = table(size);
+	float bangle = angle;
+	while (bangle > PI) {
+	    bangle -= 2 * PI;
+	}
+	while (bangle < -1 * PI) {
+	    bangle += 2 * PI;
+	}
+	return interpolate(table.sin, table.size, (bangle + PI) * table.size / (2 * PI));
+    }
+
+    public static float sinTable (float angle)
+    {
+	return sinTable(angle, tableSize);
+    }
     
     /**
-     * Calculates the sine of the given angle using the corresponding Taylor/Chebyshev series.
+     * Calculates the sine of the given angle using the given Taylor/Chebyshev series or lookup table.
      *
      * @param angle  the angle (in radians)
      * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
      * @return the sine of the given angle
      */
-    public static float sin (float angle, int degree) {
-	if (series == SeriesType.TAYLOR) {
+    public static float sin (float angle, int degree, SeriesType type, int size) {
+	if (type == SeriesType.TAYLOR) {
 	    return sinTaylor(angle, degree);
+	} else if (type == SeriesType.TABLE) {
+	    return degree <= 0 ? (float) Math.sin(angle) : sinTable(angle, size);
 	}
 	return sinChebyshev(angle, degree);
     }
+
+    /**
+     * Calculates the sine of the given angle using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param angle  the angle (in radians)
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @return the sine of the given angle
+     */
+    public static float sin (float angle, int degree) {
+	return sin(angle, degree, series, tableSize);
+    }
     
     public static float sin (float angle) {
-	if (series == SeriesType.TAYLOR) {
-	    return sinTaylor(angle);
-	}
-	return sinChebyshev(angle);
+	return sin(angle, seriesDegree);
     }
     
+    /**
+     * Calculates the sines of the first n given angles using the corresponding Taylor series.
+     * The results are the same ones of the scalar method, but every term of the series is evaluated over the whole
+     * array in a flat loop (vectorizable by the JIT compiler). The output array may be the input one.
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the sines are stored
+     * @param n      the number of angles
+     * @param degree the degree of the Taylor polynomial
+     */
+    public static void sinTaylor (float[] in, float[] out, int n, int degree)
+    {
+	if (degree <= 0) {
+	    for (int j = 0; j < n; j++) {
+		out[j] = (float) Math.sin(in[j]);
+	    }
+	    return;
+	}
+	if (degree > 11) {
+	    degree = 11;
+	}
+	float[] sine = scratch(n);
+	reduce(in, out, n);
+	for (int j = 0; j < n; j++) {
+	    sine[j] = 0;
+	}
+	for (int i = (degree - 1) / 2; i > 0; i--) {
+	    float coefficient = sinTaylorCoefficients[i];
+	    for (int j = 0; j < n; j++) {
+		sine[j] = out[j] * out[j] * (coefficient - sine[j]);
+	    }
+	}
+	for (int j = 0; j < n; j++) {
+	    out[j] = out[j] * (1 - sine[j]);
+	}
+    }
+
+    /**
+     * Calculates the sines of the first n given angles using the corresponding Chebyshev series
+     * (see sinTaylor(float[], float[], int, int)).
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the sines are stored
+     * @param n      the number of angles
+     * @param degree the degree of the Chebyshev polynomial
+     */
+    public static void sinChebyshev (float[] in, float[] out, int n, int degree)
+    {
+	if (degree <= 0) {
+	    for (int j = 0; j < n; j++) {
+		out[j] = (float) Math.sin(in[j]);
+	    }
+	    return;
+	}
+	if (degree > 11) {
+	    degree = 11;
+	}
+	float[] coefficients = sinChebyshevCoefficients[(degree - 3) / 2];
+	float[] sine = scratch(n);
+	reduce(in, out, n);
+	for (int j = 0; j < n; j++) {
+	    sine[j] = 0;
+	}
+	for (int i = (degree - 1) / 2; i > 0; i--) {
+	    float coefficient = coefficients[i];
+	    for (int j = 0; j < n; j++) {
+		sine[j] = out[j] * out[j] * (coefficient + sine[j]);
+	    }
+	}
+	float coefficient = coefficients[0];
+	for (int j = 0; j < n; j++) {
+	    out[j] = out[j] * (coefficient + sine[j]);
+	}
+    }
+
+    /**
+     * Calculates the sines of the first n given angles using a lookup table with linear interpolation.
+     *
+     * @param in   the angles (in radians)
+     * @param out  the array where the sines are stored (it may be the input one)
+     * @param n    the number of angles
+     * @param size the number of intervals of the table over [-PI, PI]
+     */
+    public static void sinTable (float[] in, float[] out, int n, int size)
+    {
+	Table table = table(size);
+	reduce(in, out, n);
+	for (int j = 0; j < n; j++) {
+	    out[j] = interpolate(table.sin, table.size, (out[j] + PI) * table.size / (2 * PI));
+	}
+    }
+
+    /**
+     * Calculates the sines of the first n given angles using the given Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the sines are stored (it may be the input one)
+     * @param n      the number of angles
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
+     */
+    public static void sin (float[] in, float[] out, int n, int degree, SeriesType type, int size) {
+	if (type == SeriesType.TAYLOR) {
+	    sinTaylor(in, out, n, degree);
+	} else if (type == SeriesType.TABLE) {
+	    if (degree <= 0) {
+		sinTaylor(in, out, n, 0);
+	    } else {
+		sinTable(in, out, n, size);
+	    }
+	} else {
+	    sinChebyshev(in, out, n, degree);
+	}
+    }
+
+    /**
+     * Calculates the sines of the first n given angles using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the sines are stored (it may be the input one)
+     * @param n      the number of angles
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     */
+    public static void sin (float[] in, float[] out, int n, int degree) {
+	sin(in, out, n, degree, series, tableSize);
+    }
+
+    public static void sin (float[] in, float[] out, int n) {
+	sin(in, out, n, seriesDegree);
+    }
+
     /**
      * Calculates the cosine of the given angle using the corresponding Taylor series.
      *
@@ -163,28 +431,90 @@ public final class TrigTools
     {
 	return sinChebyshev(angle + PI / 2, seriesDegree);
     }
+
+    /**
+     * Calculates the cosine of the given angle using a lookup table with linear interpolation.
+     *
+     * @param angle the angle (in radians)
+     * @param size  the number of intervals of the table over [-PI, PI]
+     * @return the cosine of the given angle
+     */
+    public static float cosTable (float angle, int size)
+    {
+	return sinTable(angle + PI / 2, size);
+    }
+
+    public static float cosTable (float angle)
+    {
+	return sinTable(angle + PI / 2, tableSize);
+    }
         
     /**
-     * Calculates the cosine of the given angle using the corresponding Taylor/Chebyshev series.
+     * Calculates the cosine of the given angle using the given Taylor/Chebyshev series or lookup table.
      *
      * @param angle  the angle (in radians)
      * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
      * @return the cosine of the given angle
      */
-    public static float cos (float angle, int degree) {
-	if (series == SeriesType.TAYLOR) {
+    public static float cos (float angle, int degree, SeriesType type, int size) {
+	if (type == SeriesType.TAYLOR) {
 	    return cosTaylor(angle, degree);
+	} else if (type == SeriesType.TABLE) {
+	    return degree <= 0 ? (float) Math.sin(angle + PI / 2) : cosTable(angle, size);
 	}
 	return cosChebyshev(angle, degree);
     }
+
+    /**
+     * Calculates the cosine of the given angle using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param angle  the angle (in radians)
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @return the cosine of the given angle
+     */
+    public static float cos (float angle, int degree) {
+	return cos(angle, degree, series, tableSize);
+    }
     
     public static float cos (float angle) {
-	if (series == SeriesType.TAYLOR) {
-	    return cosTaylor(angle);
-	}
-	return cosChebyshev(angle);
+	return cos(angle, seriesDegree);
     }
     
+    /**
+     * Calculates the cosines of the first n given angles using the given Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the cosines are stored (it may be the input one)
+     * @param n      the number of angles
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
+     */
+    public static void cos (float[] in, float[] out, int n, int degree, SeriesType type, int size) {
+	for (int j = 0; j < n; j++) {
+	    out[j] = in[j] + PI / 2;
+	}
+	sin(out, out, n, degree, type, size);
+    }
+
+    /**
+     * Calculates the cosines of the first n given angles using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the angles (in radians)
+     * @param out    the array where the cosines are stored (it may be the input one)
+     * @param n      the number of angles
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     */
+    public static void cos (float[] in, float[] out, int n, int degree) {
+	cos(in, out, n, degree, series, tableSize);
+    }
+
+    public static void cos (float[] in, float[] out, int n) {
+	cos(in, out, n, seriesDegree);
+    }
+
     /**
      * Calculates the arcsine of the given value using the corresponding Taylor series.
      *
@@ -241,25 +571,186 @@ public final class TrigTools
     {
 	return asinChebyshev(value, seriesDegree);
     }
+
+    /**
+     * Calculates the arcsine of the given value using a lookup table with linear interpolation.
+     * Values outside [-1, 1] are clamped.
+     *
+     * @param value the value
+     * @param size  the number of intervals of the table over [-1, 1]
+     * @return the arcsine of the given value
+     */
+    public static float asinTable (float value, int size)
+    {
+	Table table = table(size);
+	return interpolate(table.asin, table.size, (value + 1) * table.size / 2);
+    }
+
+    public static float asinTable (float value)
+    {
+	return asinTable(value, tableSize);
+    }
         
     /**
-     * Calculates the arcsine of the given angle using the corresponding Taylor/Chebyshev series.
+     * Calculates the arcsine of the given angle using the given Taylor/Chebyshev series or lookup table.
      *
      * @param angle  the angle (in radians)
      * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
      * @return the arcsine of the given angle
      */
-    public static float asin (float angle, int degree) {
-	if (series == SeriesType.TAYLOR) {
+    public static float asin (float angle, int degree, SeriesType type, int size) {
+	if (type == SeriesType.TAYLOR) {
 	    return asinTaylor(angle, degree);
+	} else if (type == SeriesType.TABLE) {
+	    return degree <= 0 ? (float) Math.asin(angle) : asinTable(angle, size);
 	}
 	return asinChebyshev(angle, degree);
     }
+
+    /**
+     * Calculates the arcsine of the given angle using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param angle  the angle (in radians)
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @return the arcsine of the given angle
+     */
+    public static float asin (float angle, int degree) {
+	return asin(angle, degree, series, tableSize);
+    }
     
     public static float asin (float angle) {
-	if (series == SeriesType.TAYLOR) {
-	    return asinTaylor(angle);
+	return asin(angle, seriesDegree);
+    }
+
+    /**
+     * Calculates the arcsines of the first n given values using the corresponding Taylor series
+     * (see sinTaylor(float[], float[], int, int)).
+     *
+     * @param in     the values
+     * @param out    the array where the arcsines are stored (it may be the input one)
+     * @param n      the number of values
+     * @param degree the degree of the Taylor polynomial
+     */
+    public static void asinTaylor (float[] in, float[] out, int n, int degree)
+    {
+	if (degree <= 0) {
+	    for (int j = 0; j < n; j++) {
+		out[j] = (float) Math.asin(in[j]);
+	    }
+	    return;
+	}
+	if (degree > 13) {
+	    degree = 13;
+	}
+	float[] arcsine = scratch(n);
+	for (int j = 0; j < n; j++) {
+	    arcsine[j] = 0;
+	}
+	for (int i = (degree - 1) / 2; i > 0; i--) {
+	    float coefficient = asinTaylorCoefficients[i];
+	    for (int j = 0; j < n; j++) {
+		arcsine[j] = in[j] * in[j] * (coefficient + arcsine[j]);
+	    }
+	}
+	for (int j = 0; j < n; j++) {
+	    out[j] = in[j] * (1 + arcsine[j]);
+	}
+    }
+
+    /**
+     * Calculates the arcsines of the first n given values using the corresponding Chebyshev series
+     * (see sinTaylor(float[], float[], int, int)).
+     *
+     * @param in     the values
+     * @param out    the array where the arcsines are stored (it may be the input one)
+     * @param n      the number of values
+     * @param degree the degree of the Chebyshev polynomial
+     */
+    public static void asinChebyshev (float[] in, float[] out, int n, int degree)
+    {
+	if (degree <= 0) {
+	    for (int j = 0; j < n; j++) {
+		out[j] = (float) Math.asin(in[j]);
+	    }
+	    return;
 	}
-	return asinChebyshev(angle);
+	if (degree > 13) {
+	    degree = 13;
+	}
+	float[] coefficients = asinChebyshevCoefficients[(degree - 3) / 2];
+	float[] arcsine = scratch(n);
+	for (int j = 0; j < n; j++) {
+	    arcsine[j] = 0;
+	}
+	for (int i = (degree - 1) / 2; i > 0; i--) {
+	    float coefficient = coefficients[i];
+	    for (int j = 0; j < n; j++) {
+		arcsine[j] = in[j] * in[j] * (coefficient + arcsine[j]);
+	    }
+	}
+	float coefficient = coefficients[0];
+	for (int j = 0; j < n; j++) {
+	    out[j] = in[j] * (coefficient + arcsine[j]);
+	}
+    }
+
+    /**
+     * Calculates the arcsines of the first n given values using a lookup table with linear interpolation.
+     * Values outside [-1, 1] are clamped.
+     *
+     * @param in   the values
+     * @param out  the array where the arcsines are stored (it may be the input one)
+     * @param n    the number of values
+     * @param size the number of intervals of the table over [-1, 1]
+     */
+    public static void asinTable (float[] in, float[] out, int n, int size)
+    {
+	Table table = table(size);
+	float scale = table.size / 2f;
+	for (int j = 0; j < n; j++) {
+	    out[j] = interpolate(table.asin, table.size, (in[j] + 1) * scale);
+	}
+    }
+
+    /**
+     * Calculates the arcsines of the first n given values using the given Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the values
+     * @param out    the array where the arcsines are stored (it may be the input one)
+     * @param n      the number of values
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     * @param type   the approximation of the trigonometric functions
+     * @param size   the number of intervals of the lookup table (TABLE approximation)
+     */
+    public static void asin (float[] in, float[] out, int n, int degree, SeriesType type, int size) {
+	if (type == SeriesType.TAYLOR) {
+	    asinTaylor(in, out, n, degree);
+	} else if (type == SeriesType.TABLE) {
+	    if (degree <= 0) {
+		asinTaylor(in, out, n, 0);
+	    } else {
+		asinTable(in, out, n, size);
+	    }
+	} else {
+	    asinChebyshev(in, out, n, degree);
+	}
+    }
+
+    /**
+     * Calculates the arcsines of the first n given values using the corresponding Taylor/Chebyshev series or lookup table.
+     *
+     * @param in     the values
+     * @param out    the array where the arcsines are stored (it may be the input one)
+     * @param n      the number of values
+     * @param degree the degree of the Taylor/Chebyshev polynomial
+     */
+    public static void asin (float[] in, float[] out, int n, int degree) {
+	asin(in, out, n, degree, series, tableSize);
+    }
+
+    public static void asin (float[] in, float[] out, int n) {
+	asin(in, out, n, seriesDegree);
     }
 }
@@ -27,6 +27,41 @@ public class WepPredictorModule extends PredictorModule
      * The past prediction errors
      */
     private double[] pastErrors;
+
+    /**
+     * The current data values in the window of the last sample (circular buffer, streaming mode)
+     */
+    private double[] windowValues;
+
+    /**
+     * The position of the oldest value in the window
+     */
+    private int windowStart;
+
+    /**
+     * The number of values in the window
+     */
+    private int windowSize;
+
+    /**
+     * The sum of the values in the window
+     */
+    private double sumValues;
+
+    /**
+     * The sum of the values in the window weighted by their position (1 for the oldest one)
+     */
+    private double sumWeightedValues;
+
+    /**
+     * The number of samples the window has slid since its sums were last computed from scratch
+     */
+    private int numSlides;
+
+    /**
+     * The window values followed by the predicted ones (reused by predict)
+     */
+    private double[] sequence;
     
     /**
      * Creates a new WEP predictor module.
@@ -42,55 +77,197 @@ public class WepPredictorModule extends PredictorModule
 	errorAdjustment = false;
 	pastPredictions = new double[currentData.size()];
 	pastErrors = new double[currentData.size()];
+	windowValues = new double[slotWindow];
+	sequence = new double[0];
+	for (int index = Math.max(1, currentData.size() - slotWindow); index < currentData.size(); index++) {
+	    update(index);
+	}
+    }
+
+    /**
+     * Slides the window of the last sample forward (the first sample is never part of the window).
+     * The window sums are computed from scratch once the window has slid a whole window, so that
+     * rounding errors do not accumulate along the day.
+     *
+     * @param index the index of the new sample in the current data
+     */
+    protected void update (int index)
+    {
+	if (index < 1) {
+	    return;
+	}
+	double value = currentData.getValue(index);
+	if (windowSize < slotWindow) {
+	    windowValues[(windowStart + windowSize) % slotWindow] = value;
+	    windowSize++;
+	    sumWeightedValues += windowSize * value;
+	    sumValues += value;
+	} else {
+	    sumWeightedValues += slotWindow * value - sumValues;
+	    sumValues += value - windowValues[windowStart];
+	    windowValues[windowStart] = value;
+	    windowStart = (windowStart + 1) % slotWindow;
+	    if (++numSlides >= slotWindow) {
+		numSlides = 0;
+		sumValues = 0.0;
+		sumWeightedValues = 0.0;
+		for (int k = 0; k < slotWindow; k++) {
+		    double windowValue = windowValues[(windowStart + k) % slotWindow];
+		    sumValues += windowValue;
+		    sumWeightedValues += (k + 1) * windowValue;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Computes the predictions for the timeslots following the last sample using the window sums, so that
+     * every prediction step costs O(1) instead of O(slotWindow).
+     *
+     * @param  stepTimeslot the timeslot step
+     * @param  predictions  the array where the predictions for the next predictions.length steps are stored
+     * @throws IllegalArgumentException if the timeslot step is not a multiple of the sample spacing
+     */
+    public void predict (int stepTimeslot, double[] predictions)
+    {
+	int slotsPerStep = samplesPerStep(stepTimeslot);
+	int numSteps = predictions.length * slotsPerStep;
+	if (sequence.length < slotWindow + numSteps) {
+	    sequence = new double[slotWindow + numSteps];
+	}
+	for (int k = 0; k < windowSize; k++) {
+	    sequence[k] = windowValues[(windowStart + k) % slotWindow];
+	}
+	int first = 0;
+	int size = windowSize;
+	double sum = sumValues;
+	double weightedSum = sumWeightedValues;
+	for (int k = 1; k <= numSteps; k++) {
+	    double prediction = weightedSum / (size * (size + 1) / 2);
+	    sequence[windowSize + k - 1] = prediction;
+	    if (k % slotsPerStep == 0) {
+		predictions[k / slotsPerStep - 1] = prediction;
+	    }
+	    if (size < slotWindow) {
+		size++;
+		weightedSum += size * prediction;
+		sum += prediction;
+	    } else {
+		weightedSum += slotWindow * prediction - sum;
+		sum += prediction - sequence[first++];
+	    }
+	}
     }
     
     /**
-     * Returns the data value predicted for the given timeslot index.
+     * Computes the predictions for every timeslot from the initial timeslot (excluded) to the final one in a
+     * single forward pass up to the last horizon.
      *
-     * @param  index        the timeslot index
-     * @param  currentIndex the current timeslot index
-     * @return the data value predicted for the given timeslot index
+     * @param initialTimeslot the initial timeslot
+     * @param finalTimeslot   the final timeslot
+     * @param stepTimeslot    the timeslot step
+     * @param predictions     the array where the predictions are stored (one per step)
+     * @return the number of predictions stored in the array
+     */
+    public int predictHorizons (int initialTimeslot, int finalTimeslot, int stepTimeslot, double[] predictions)
+    {
+	int numPredictions = Math.max((finalTimeslot - initialTimeslot) / stepTimeslot, 0);
+	if (numPredictions == 0) {
+	    return 0;
+	}
+	int initIndex = currentData.getIndexByTimeslot(initialTimeslot);
+	computePredictions(initIndex, currentData.getIndexByTimeslot(initialTimeslot + numPredictions * stepTimeslot));
+	for (int h = 0; h < numPredictions; h++) {
+	    predictions[h] = pastPredictions[currentData.getIndexByTimeslot(initialTimeslot + (h + 1) * stepTimeslot) - 1];
+	}
+	return numPredictions;
+    }
+
+    /**
+     * Computes the predictions (and the errors) of every index before the past index for the given initial index.
+     * The linearly weighted sum of the window, its plain sum and the sum of its errors are computed once and then
+     * slid forward, so that every index costs O(1) whatever the window size (they are computed from scratch
+     * again once the window has slid a whole window, so that rounding errors do not accumulate).
      */
-    private double computePrediction (int index, int currentIndex)
+    private void computePredictions (int initIndex, int pastIndex)
     {
-	int firstIndex = index - slotWindow + 1;
-	if (firstIndex < 1) {
-	    firstIndex = 1;
+	int firstIndex = errorAdjustment ? 1 : initIndex;
+	if (firstIndex >= pastIndex) {
+	    return;
+	}
+	int windowFirst = firstIndex - slotWindow + 1;
+	if (windowFirst < 1) {
+	    windowFirst = 1;
 	}
-	int weight = 1;
-	int sumWeights = 0;
 	double sumValues = 0.0;
+	double sumWeightedValues = 0.0;
 	double sumErrors = 0.0;
-	for (int i = firstIndex; i <= index; i++) {
-	    double value = i > currentIndex ? pastPredictions[i - 1] : currentData.getEntryByIndex(i).getValue();
-	    sumValues += weight * value;
-	    sumWeights += weight;
+	int numSlides = 0;
+	for (int i = windowFirst; i < firstIndex; i++) {
+	    double value = windowValue(i, initIndex);
+	    sumValues += value;
+	    sumWeightedValues += (i - windowFirst + 1) * value;
 	    sumErrors += pastErrors[i - 1];
-	    weight++;
 	}
-	double prediction = sumValues / sumWeights;
-	if (errorAdjustment) {
-	    prediction += sumErrors / (index - firstIndex + 1);
+	for (int index = firstIndex; index < pastIndex; index++) {
+	    // Window slid forward to the current index (the oldest value leaves it once it is full)
+	    double value = windowValue(index, initIndex);
+	    int windowSize = index - windowFirst;
+	    if (windowSize < slotWindow) {
+		windowSize++;
+		sumWeightedValues += windowSize * value;
+	    } else {
+		sumWeightedValues += slotWindow * value - sumValues;
+		sumValues -= windowValue(windowFirst, initIndex);
+		sumErrors -= pastErrors[windowFirst - 1];
+		windowFirst++;
+		numSlides++;
+	    }
+	    sumValues += value;
+	    sumErrors += pastErrors[index - 1];
+	    if (numSlides >= slotWindow) {
+		numSlides = 0;
+		sumValues = 0.0;
+		sumWeightedValues = 0.0;
+		sumErrors = 0.0;
+		for (int i = windowFirst; i <= index; i++) {
+		    double windowValue = windowValue(i, initIndex);
+		    sumValues += windowValue;
+		    sumWeightedValues += (i - windowFirst + 1) * windowValue;
+		    sumErrors += pastErrors[i - 1];
+		}
+	    }
+	    double prediction = sumWeightedValues / (windowSize * (windowSize + 1) / 2);
+	    if (errorAdjustment) {
+		prediction += sumErrors / windowSize;
+	    }
+	    pastPredictions[index] = prediction;
+	    pastErrors[index] = index >= initIndex ? 0.0 : currentData.getValue(index + 1) - pastPredictions[index];
 	}
-	return prediction;
+    }
+
+    /**
+     * Returns the value of the given index in the window: the current data value up to the initial index
+     * and the predicted one after it.
+     */
+    private double windowValue (int index, int initIndex)
+    {
+	return index > initIndex ? pastPredictions[index - 1] : currentData.getValue(index);
     }
     
     /**
-     * Returns the data value predicted for the timeslot of the specified past data entry.
+     * Returns the data value predicted for the specified past timeslot.
      *
-     * @param  initEntry the initial data entry
-     * @param  pastEntry the past data entry
-     * @return the data value predicted for the timeslot of the specified past data entry
+     * @param  initTimeslot the initial timeslot
+     * @param  initValue    the data value at the initial timeslot
+     * @param  pastTimeslot the past timeslot
+     * @param  pastValue    the past data value at the past timeslot
+     * @return the data value predicted for the specified past timeslot
      */
-    public double getPrediction (DataEntry initEntry, DataEntry pastEntry)
+    public double getPrediction (int initTimeslot, double initValue, int pastTimeslot, double pastValue)
     {
-	int initIndex = currentData.getIndexByTimeslot(initEntry.getTimeslot());
-	int pastIndex = currentData.getIndexByTimeslot(pastEntry.getTimeslot());
-	int firstIndex = errorAdjustment ? 1 : initIndex;
-	for (int index = firstIndex; index < pastIndex; index++) {
-	    pastPredictions[index] = computePrediction(index, initIndex);
-	    pastErrors[index] = index >= initIndex ? 0.0 : currentData.getEntryByIndex(index + 1).getValue() - pastPredictions[index];
-	}
+	int pastIndex = currentData.getIndexByTimeslot(pastTimeslot);
+	computePredictions(currentData.getIndexByTimeslot(initTimeslot), pastIndex);
 	return pastPredictions[pastIndex - 1];
     }
 }
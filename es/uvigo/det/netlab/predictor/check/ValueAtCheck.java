@@ -0,0 +1,152 @@
+package es.uvigo.det.netlab.predictor.check;
+
+import es.uvigo.det.netlab.predictor.DataEntry;
+import es.uvigo.det.netlab.predictor.DataList;
+import es.uvigo.det.netlab.predictor.EnergyPredictor;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class checks that DataList.valueAt returns bit-identical values to getEntryByTimeslot and to the
+ * original lookup (a linear scan of the data entries), for power and energy traces, on uniform, non-uniform
+ * and unsorted timeslot grids, and for every timeslot from before the first data entry to after the last one.
+ *
+ * Usage: java es.uvigo.det.netlab.predictor.check.ValueAtCheck [-seed N] (exits with status 1 on mismatch)
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+public final class ValueAtCheck
+{
+    /**
+     * Number of data entries of every checked data list.
+     */
+    private static final int NUM_ENTRIES = 60;
+
+    /**
+     * Number of random data lists checked for every grid.
+     */
+    private static final int NUM_LISTS = 50;
+
+    private ValueAtCheck () {}
+
+    /**
+     * Returns the value at the specified timeslot as computed by the original getEntryByTimeslot.
+     */
+    private static double referenceValue (DataList dataList, int timeslot)
+    {
+	List<DataEntry> list = dataList.getList();
+	int index = list.size() - 1;
+	for (int i = 0; i < list.size(); i++) {
+	    int entryTimeslot = list.get(i).getTimeslot();
+	    if (entryTimeslot == timeslot) {
+		index = i;
+		break;
+	    } else if (entryTimeslot > timeslot) {
+		index = i == 0 ? 0 : i - 1;
+		break;
+	    }
+	}
+	if (index < 0) {
+	    return 0;
+	}
+	DataEntry entry = list.get(index);
+	int entryTimeslot = entry.getTimeslot();
+	if (entryTimeslot == timeslot || index == list.size() - 1) {
+	    return entry.getValue();
+	}
+	DataEntry nextEntry = list.get(index + 1);
+	return EnergyPredictor.energyTraces ?
+	    nextEntry.getValue() * (timeslot - entryTimeslot) / (nextEntry.getTimeslot() - entryTimeslot) :
+	    nextEntry.getValue();
+    }
+
+    /**
+     * Returns a random data list on the given grid (uniform, non-uniform or unsorted).
+     */
+    private static DataList newDataList (Random random, String grid)
+    {
+	DataList dataList = new DataList(grid, null);
+	int timeslot = 0;
+	for (int i = 0; i < NUM_ENTRIES; i++) {
+	    if (grid.equals("uniform")) {
+		timeslot += 30;
+	    } else if (grid.equals("non-uniform")) {
+		timeslot += 1 + random.nextInt(40);
+	    } else {
+		timeslot = 1 + random.nextInt(NUM_ENTRIES * 20);
+	    }
+	    dataList.addEntry(random.nextDouble() * 100, timeslot);
+	}
+	return dataList;
+    }
+
+    /**
+     * Checks every timeslot of the given data list and returns the number of mismatches.
+     */
+    private static int check (DataList dataList)
+    {
+	int firstTimeslot = Integer.MAX_VALUE, lastTimeslot = 0;
+	for (int i = 0; i < dataList.size(); i++) {
+	    firstTimeslot = Math.min(firstTimeslot, dataList.getTimeslot(i));
+	    lastTimeslot = Math.max(lastTimeslot, dataList.getTimeslot(i));
+	}
+	if (dataList.size() == 0) {
+	    firstTimeslot = lastTimeslot = 0;
+	}
+	int mismatches = 0;
+	for (int timeslot = firstTimeslot - 50; timeslot <= lastTimeslot + 50; timeslot++) {
+	    long value = Double.doubleToRawLongBits(dataList.valueAt(timeslot));
+	    long entryValue = Double.doubleToRawLongBits(dataList.getEntryByTimeslot(timeslot).getValue());
+	    long reference = Double.doubleToRawLongBits(referenceValue(dataList, timeslot));
+	    if (value != entryValue || value != reference) {
+		if (mismatches == 0) {
+		    System.out.println("Mismatch: " + dataList.getLabel() + " energy: " + EnergyPredictor.energyTraces + " timeslot: " + timeslot
+				       + " valueAt: " + dataList.valueAt(timeslot) + " getEntryByTimeslot: " + dataList.getEntryByTimeslot(timeslot).getValue()
+				       + " reference: " + referenceValue(dataList, timeslot));
+		}
+		mismatches++;
+	    }
+	}
+	return mismatches;
+    }
+
+    /**
+     * Main method
+     */
+    public static void main (String[] args)
+    {
+	long seed = 1;
+	for (int i = 0; i < args.length; i++) {
+	    if (args[i].equals("-seed") && i + 1 < args.length) {
+		seed = Long.parseLong(args[++i]);
+	    } else {
+		System.err.println("Usage: java es.uvigo.det.netlab.predictor.check.ValueAtCheck [-seed N]");
+		System.exit(2);
+	    }
+	}
+	boolean energyTraces = EnergyPredictor.energyTraces;
+	int numChecks = 0, mismatches = 0;
+	try {
+	    for (boolean energy : new boolean[] {false, true}) {
+		EnergyPredictor.energyTraces = energy;
+		Random random = new Random(seed);
+		mismatches += check(new DataList("empty", null));
+		numChecks++;
+		for (String grid : new String[] {"uniform", "non-uniform", "unsorted"}) {
+		    for (int i = 0; i < NUM_LISTS; i++) {
+			mismatches += check(newDataList(random, grid));
+			numChecks++;
+		    }
+		}
+	    }
+	} finally {
+	    EnergyPredictor.energyTraces = energyTraces;
+	}
+	System.out.println("Checked data lists: " + numChecks + " Mismatches: " + mismatches);
+	if (mismatches > 0) {
+	    System.exit(1);
+	}
+    }
+}
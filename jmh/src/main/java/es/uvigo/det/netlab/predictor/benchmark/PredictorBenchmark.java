@@ -0,0 +1,261 @@
+package es.uvigo.det.netlab.predictor.benchmark;
+
+import es.uvigo.det.netlab.predictor.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the predictor and analyzer modules on synthetic solar traces (JMH).
+ *
+ * It measures the throughput and latency of getPredictions for every predictor module, parameterised by the
+ * timeslot resolution (timeslots per day), and of mostSimilarList for every analyzer module, parameterised by
+ * the timeslot resolution and the size of the trace pool (the predictor modules only read the first days of
+ * the pool, so their pool is not a parameter).
+ *
+ * Usage: java -jar jmh/build/libs/benchmarks.jar PredictorBenchmark [-p slotsPerDay=48,288] [-p poolSize=10]
+ *        [-p predictor=wep,arma] [-p analyzer=mae] [-rf json] (see java -jar benchmarks.jar -h)
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictorBenchmark
+{
+    /**
+     * Location of the synthetic traces (the one of the sample configuration file).
+     */
+    private static final double LATITUDE = 35.92996;
+    private static final double LONGITUDE = -84.30952;
+    private static final String TIME_ZONE = "EST";
+
+    /**
+     * Analytic sunrise and sunset times shared by the synthetic traces.
+     */
+    private static final Ephemeris EPHEMERIS = new Ephemeris(null);
+
+    /**
+     * Number of past timeslots used by the analyzers and predictors, prediction horizon (in timeslots)
+     * and maximum number of initial timeslots the measured operations cycle through.
+     */
+    private static final int SLOT_WINDOW = 6;
+    private static final int HORIZON_SLOTS = 4;
+    private static final int MAX_INIT_SLOTS = 16;
+
+    /**
+     * Number of days of the pool of the predictor modules.
+     */
+    private static final int PREDICTOR_POOL_SIZE = 4;
+
+    /**
+     * This class holds the predictor modules under measurement: one instance per initial timeslot, built before
+     * measuring.
+     */
+    @State(Scope.Thread)
+    public static class PredictorState
+    {
+	@Param({"48", "288", "1440", "86400"})
+	public int slotsPerDay;
+
+	@Param({"dumb", "pro-energy", "ipro-energy", "dwcma", "udwcma", "saa", "saa-sine", "wep", "arma", "ewma"})
+	public String predictor;
+
+	private PredictorModule[] modules;
+	private int[] initSlots;
+	private int slotStep;
+	private int next;
+
+	@Setup
+	public void setup ()
+	{
+	    DataList challenge = syntheticTrace(slotsPerDay, 0);
+	    List<DataList> pool = syntheticPool(slotsPerDay, PREDICTOR_POOL_SIZE);
+	    initSlots = initTimeslots(slotsPerDay);
+	    slotStep = 86400 / slotsPerDay;
+	    modules = new PredictorModule[initSlots.length];
+	    for (int i = 0; i < initSlots.length; i++) {
+		modules[i] = newPredictor(predictor, challenge, pool, initSlots[i]);
+	    }
+	}
+    }
+
+    /**
+     * This class holds the analyzer module under measurement and its challenge.
+     */
+    @State(Scope.Thread)
+    public static class AnalyzerState
+    {
+	@Param({"48", "288", "1440", "86400"})
+	public int slotsPerDay;
+
+	@Param({"10", "100"})
+	public int poolSize;
+
+	@Param({"mae", "average", "random"})
+	public String analyzer;
+
+	private AnalyzerModule module;
+	private DataList challenge;
+	private int[] initSlots;
+	private int next;
+
+	@Setup
+	public void setup ()
+	{
+	    challenge = syntheticTrace(slotsPerDay, 0);
+	    module = newAnalyzer(analyzer, syntheticPool(slotsPerDay, poolSize));
+	    initSlots = initTimeslots(slotsPerDay);
+	}
+    }
+
+    /**
+     * Returns a synthetic solar power trace (clear-sky profile with random cloudiness) collected the given number
+     * of days before the challenge day. Timeslots are expressed in seconds.
+     */
+    private static DataList syntheticTrace (int slotsPerDay, int daysBefore)
+    {
+	Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(TIME_ZONE));
+	calendar.clear();
+	calendar.set(2018, Calendar.JUNE, 15);
+	calendar.add(Calendar.DAY_OF_MONTH, -daysBefore);
+	SolarDataList trace = new SolarDataList("synthetic-" + daysBefore + ".trace", calendar.getTime(), TIME_ZONE, LATITUDE, LONGITUDE, EPHEMERIS);
+	Random random = new Random(daysBefore);
+	double cloudiness = 0.5 * random.nextDouble();
+	int slotStep = 86400 / slotsPerDay;
+	for (int i = 1; i <= slotsPerDay; i++) {
+	    int timeslot = i * slotStep;
+	    double sunAngle = Math.PI * (timeslot - 6.5 * 3600) / (14 * 3600);
+	    double value = sunAngle > 0 && sunAngle < Math.PI ? Math.sin(sunAngle) * (1 - cloudiness * random.nextDouble()) : 0.0;
+	    trace.addEntry(40 * value, timeslot);
+	}
+	return trace;
+    }
+
+    /**
+     * Returns a pool of synthetic solar power traces of the given number of days before the challenge day.
+     */
+    private static List<DataList> syntheticPool (int slotsPerDay, int poolSize)
+    {
+	List<DataList> pool = new ArrayList<DataList>(poolSize);
+	for (int d = 1; d <= poolSize; d++) {
+	    pool.add(syntheticTrace(slotsPerDay, d));
+	}
+	return pool;
+    }
+
+    /**
+     * Returns the initial timeslots (between 09:00 and 15:00) the measured operations cycle through.
+     */
+    private static int[] initTimeslots (int slotsPerDay)
+    {
+	int slotStep = 86400 / slotsPerDay;
+	int firstSlot = 9 * 3600 / slotStep;
+	int lastSlot = 15 * 3600 / slotStep;
+	int numSlots = Math.min(MAX_INIT_SLOTS, lastSlot - firstSlot + 1);
+	int[] timeslots = new int[numSlots];
+	for (int i = 0; i < numSlots; i++) {
+	    timeslots[i] = (firstSlot + i * (lastSlot - firstSlot) / Math.max(numSlots - 1, 1)) * slotStep;
+	}
+	return timeslots;
+    }
+
+    /**
+     * Returns a new predictor module for the given challenge, pool and initial timeslot.
+     */
+    private static PredictorModule newPredictor (String mode, DataList challenge, List<DataList> pool, int initSlot)
+    {
+	DataList similar = pool.get(0);
+	if (mode.equals("dumb")) {
+	    return new DumbPredictorModule(challenge, similar);
+	} else if (mode.equals("pro-energy")) {
+	    return new ProEnergyPredictorModule(challenge, similar, 0.5, 2);
+	} else if (mode.equals("ipro-energy")) {
+	    return new IproEnergyPredictorModule(challenge, similar, 0.5);
+	} else if (mode.matches("dwcma|udwcma")) {
+	    AverageAnalyzerModule analyzer = new AverageAnalyzerModule();
+	    for (DataList poolList : pool.subList(0, Math.min(4, pool.size()))) {
+		analyzer.add(poolList);
+	    }
+	    DataList averageList = analyzer.mostSimilarList(challenge, initSlot, SLOT_WINDOW);
+	    if (mode.equals("dwcma")) {
+		return new DwcmaPredictorModule(challenge, averageList, analyzer.alphaWeightingFactorList(), initSlot, SLOT_WINDOW);
+	    }
+	    DataList[] factorLists = {analyzer.alphaWeightingFactorList(), analyzer.betaWeightingFactorList()};
+	    return new UDwcmaPredictorModule(challenge, averageList, similar, factorLists, initSlot, SLOT_WINDOW);
+	} else if (mode.equals("saa")) {
+	    return new SaaPredictorModule(challenge, similar, true, 0, TrigTools.SeriesType.TAYLOR, 1024);
+	} else if (mode.equals("saa-sine")) {
+	    return new SaaPredictorModule(challenge, similar, false, 0, TrigTools.SeriesType.TAYLOR, 1024);
+	} else if (mode.equals("wep")) {
+	    return new WepPredictorModule(challenge, similar, SLOT_WINDOW);
+	} else if (mode.equals("arma")) {
+	    return new ArmaPredictorModule(challenge, similar, new double[] {0.5, 0.3}, new double[] {0.2});
+	} else if (mode.equals("ewma")) {
+	    return new EwmaPredictorModule(challenge, similar, 0.5);
+	}
+	throw new IllegalArgumentException("invalid predictor mode " + mode);
+    }
+
+    /**
+     * Returns a new analyzer module with the given pool.
+     */
+    private static AnalyzerModule newAnalyzer (String mode, List<DataList> pool)
+    {
+	AnalyzerModule analyzer;
+	if (mode.equals("mae")) {
+	    analyzer = new MaeAnalyzerModule(4);
+	} else if (mode.equals("average")) {
+	    analyzer = new AverageAnalyzerModule();
+	} else if (mode.equals("random")) {
+	    analyzer = new RandomAnalyzerModule();
+	} else {
+	    throw new IllegalArgumentException("invalid analyzer mode " + mode);
+	}
+	for (DataList poolList : pool) {
+	    analyzer.add(poolList);
+	}
+	return analyzer;
+    }
+
+    /**
+     * Measures getPredictions cycling through the initial timeslots.
+     */
+    @Benchmark
+    public DataList getPredictions (PredictorState state)
+    {
+	int i = state.next;
+	state.next = (state.next + 1) % state.initSlots.length;
+	return state.modules[i].getPredictions(state.initSlots[i], state.initSlots[i] + HORIZON_SLOTS * state.slotStep, state.slotStep);
+    }
+
+    /**
+     * Measures mostSimilarList cycling through the initial timeslots.
+     */
+    @Benchmark
+    public DataList mostSimilarList (AnalyzerState state)
+    {
+	int i = state.next;
+	state.next = (state.next + 1) % state.initSlots.length;
+	return state.module.mostSimilarList(state.challenge, state.initSlots[i], SLOT_WINDOW);
+    }
+}
@@ -0,0 +1,348 @@
+package es.uvigo.det.netlab.predictor.benchmark;
+
+import es.uvigo.det.netlab.predictor.TrigTools;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class benchmarks the speed (JMH) and the accuracy (plain pass) of the Taylor, Chebyshev and lookup table
+ * approximations of TrigTools.
+ *
+ * Every function (sin, cos and asin) is measured over the argument ranges used by SaaPredictorModule for every
+ * series type and degree, for every lookup table size, and for Math and StrictMath. Every invocation evaluates
+ * the function over a fixed set of arguments whose results are consumed by a Blackhole, so the scores are the
+ * cost of a single call in ns/op.
+ *
+ * The accuracy (maximum and mean absolute error with respect to StrictMath) is computed by the main method of
+ * this class, which also reports, given an error budget, the lowest degree of every series type and the smallest
+ * table that meet it (the cheapest ones of their kind).
+ *
+ * Usage: java -jar jmh/build/libs/benchmarks.jar TrigBenchmark [-p range=daytime,altitude] [-p series=TAYLOR]
+ *        [-p degree=3,5] [-p tableSize=256] [-rf json]
+ *        java -cp jmh/build/libs/benchmarks.jar es.uvigo.det.netlab.predictor.benchmark.TrigBenchmark [-budget 1e-4]
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigBenchmark
+{
+    /**
+     * Number of arguments evaluated by every invocation.
+     */
+    private static final int NUM_INPUTS = 1024;
+
+    /**
+     * Number of arguments used to compute the accuracy.
+     */
+    private static final int NUM_ACCURACY_POINTS = 200001;
+
+    /**
+     * Sizes of the lookup tables reported by the accuracy pass.
+     */
+    private static final int[] TABLE_SIZES = {64, 256, 1024, 4096};
+
+    /**
+     * Argument ranges of SaaPredictorModule: the sine of the relative daytime position (saa-sine), the sine and cosine
+     * of latitude and declination angles, the cosine of the hour angle and of the day-of-year angle, and the arcsine
+     * of the solar altitude.
+     */
+    private static final Object[][] RANGES = {
+	{"sin", "daytime", 0.0, Math.PI},
+	{"sin", "latitude", -Math.PI / 2, Math.PI / 2},
+	{"cos", "hourAngle", -Math.PI, Math.PI},
+	{"cos", "dayOfYear", 11 * 2 * Math.PI / 365, 376 * 2 * Math.PI / 365},
+	{"asin", "altitude", -1.0, 1.0}
+    };
+
+    /**
+     * This class holds the function and the arguments of the selected range.
+     */
+    @State(Scope.Thread)
+    public static class Inputs
+    {
+	@Param({"daytime", "latitude", "hourAngle", "dayOfYear", "altitude"})
+	public String range;
+
+	private String function;
+	private float[] inputs;
+
+	@Setup
+	public void setup ()
+	{
+	    Object[] selected = range(range);
+	    function = (String) selected[0];
+	    double min = (Double) selected[2];
+	    double max = (Double) selected[3];
+	    inputs = new float[NUM_INPUTS];
+	    for (int i = 0; i < NUM_INPUTS; i++) {
+		// Low-discrepancy sequence so that consecutive arguments are spread over the range
+		inputs[i] = (float) (min + (max - min) * ((i * 0.6180339887498949) % 1.0));
+	    }
+	}
+    }
+
+    /**
+     * This class holds the series type and degree of the series benchmarks (Chebyshev series start at degree 3,
+     * the arcsine series can also be measured at degree 13).
+     */
+    @State(Scope.Thread)
+    public static class Series
+    {
+	@Param({"TAYLOR", "CHEBYSHEV"})
+	public TrigTools.SeriesType series;
+
+	@Param({"3", "5", "7", "9", "11"})
+	public int degree;
+    }
+
+    /**
+     * This class holds the size of the lookup tables of the table benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Table
+    {
+	@Param({"64", "256", "1024", "4096"})
+	public int tableSize;
+    }
+
+    /**
+     * Returns the range with the given name.
+     */
+    private static Object[] range (String name)
+    {
+	for (Object[] range : RANGES) {
+	    if (range[1].equals(name)) {
+		return range;
+	    }
+	}
+	throw new IllegalArgumentException("invalid range " + name);
+    }
+
+    /**
+     * Measures the given Taylor/Chebyshev series.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void series (Inputs inputs, Series series, Blackhole blackhole)
+    {
+	float[] x = inputs.inputs;
+	int degree = series.degree;
+	if (inputs.function.equals("sin")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.sin(x[i], degree, series.series, 0));
+	    }
+	} else if (inputs.function.equals("cos")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.cos(x[i], degree, series.series, 0));
+	    }
+	} else {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.asin(x[i], degree, series.series, 0));
+	    }
+	}
+    }
+
+    /**
+     * Measures the lookup tables of the given size.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void table (Inputs inputs, Table table, Blackhole blackhole)
+    {
+	float[] x = inputs.inputs;
+	int size = table.tableSize;
+	if (inputs.function.equals("sin")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.sinTable(x[i], size));
+	    }
+	} else if (inputs.function.equals("cos")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.cosTable(x[i], size));
+	    }
+	} else {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume(TrigTools.asinTable(x[i], size));
+	    }
+	}
+    }
+
+    /**
+     * Measures Math (rounded to single precision, as the exact SAA model does with degree 0).
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void math (Inputs inputs, Blackhole blackhole)
+    {
+	float[] x = inputs.inputs;
+	if (inputs.function.equals("sin")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) Math.sin(x[i]));
+	    }
+	} else if (inputs.function.equals("cos")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) Math.cos(x[i]));
+	    }
+	} else {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) Math.asin(x[i]));
+	    }
+	}
+    }
+
+    /**
+     * Measures StrictMath (the reference of the accuracy pass).
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_INPUTS)
+    public void strictMath (Inputs inputs, Blackhole blackhole)
+    {
+	float[] x = inputs.inputs;
+	if (inputs.function.equals("sin")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) StrictMath.sin(x[i]));
+	    }
+	} else if (inputs.function.equals("cos")) {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) StrictMath.cos(x[i]));
+	    }
+	} else {
+	    for (int i = 0; i < x.length; i++) {
+		blackhole.consume((float) StrictMath.asin(x[i]));
+	    }
+	}
+    }
+
+    /**
+     * Returns the value of the given function computed with the specified series type and degree (table size for
+     * the TABLE series type).
+     */
+    private static float apply (String name, TrigTools.SeriesType series, int degree, float x)
+    {
+	if (series == TrigTools.SeriesType.TABLE) {
+	    if (name.equals("sin")) {
+		return TrigTools.sinTable(x, degree);
+	    } else if (name.equals("cos")) {
+		return TrigTools.cosTable(x, degree);
+	    }
+	    return TrigTools.asinTable(x, degree);
+	}
+	if (name.equals("sin")) {
+	    return TrigTools.sin(x, degree, series, 0);
+	} else if (name.equals("cos")) {
+	    return TrigTools.cos(x, degree, series, 0);
+	}
+	return TrigTools.asin(x, degree, series, 0);
+    }
+
+    /**
+     * Returns the exact value of the given function.
+     */
+    private static double exact (String name, double x)
+    {
+	if (name.equals("sin")) {
+	    return StrictMath.sin(x);
+	} else if (name.equals("cos")) {
+	    return StrictMath.cos(x);
+	}
+	return StrictMath.asin(x);
+    }
+
+    /**
+     * Returns the maximum and mean absolute errors of the given approximation over the specified range.
+     */
+    private static double[] accuracy (String name, TrigTools.SeriesType series, int degree, double min, double max)
+    {
+	double maxError = 0.0;
+	double sumError = 0.0;
+	for (int i = 0; i < NUM_ACCURACY_POINTS; i++) {
+	    float x = (float) (min + (max - min) * i / (NUM_ACCURACY_POINTS - 1));
+	    double error = Math.abs(apply(name, series, degree, x) - exact(name, x));
+	    maxError = Math.max(maxError, error);
+	    sumError += error;
+	}
+	return new double[] {maxError, sumError / NUM_ACCURACY_POINTS};
+    }
+
+    /**
+     * Returns the valid degrees of the given series type for the given function. Only odd degrees are listed since
+     * the series only have odd terms (even degrees are rounded down). Chebyshev series start at degree 3 and only
+     * the arcsine series go beyond degree 11. The degrees of the TABLE series type are the table sizes.
+     */
+    private static int[] degrees (String name, TrigTools.SeriesType series)
+    {
+	if (series == TrigTools.SeriesType.TABLE) {
+	    return TABLE_SIZES;
+	}
+	int minDegree = series == TrigTools.SeriesType.TAYLOR ? 1 : 3;
+	int maxDegree = name.equals("asin") ? 13 : 11;
+	int[] degrees = new int[(maxDegree - minDegree) / 2 + 1];
+	for (int i = 0; i < degrees.length; i++) {
+	    degrees[i] = minDegree + 2 * i;
+	}
+	return degrees;
+    }
+
+    /**
+     * Main method (accuracy pass)
+     */
+    public static void main (String[] args)
+    {
+	double budget = -1.0;
+	try {
+	    for (int i = 0; i < args.length; i++) {
+		if (args[i].equals("-budget") && i + 1 < args.length) {
+		    budget = Double.parseDouble(args[++i]);
+		} else {
+		    throw new IllegalArgumentException("unknown argument " + args[i]);
+		}
+	    }
+	} catch (IllegalArgumentException e) {
+	    System.err.println("\nERROR: " + e.getMessage() + "\n");
+	    System.exit(1);
+	}
+
+	StringBuilder summary = new StringBuilder();
+	for (Object[] range : RANGES) {
+	    String name = (String) range[0];
+	    double min = (Double) range[2];
+	    double max = (Double) range[3];
+	    StringBuilder cheapest = new StringBuilder();
+	    for (TrigTools.SeriesType series : TrigTools.SeriesType.values()) {
+		String label = series == TrigTools.SeriesType.TABLE ? " size " : " degree ";
+		boolean found = false;
+		for (int degree : degrees(name, series)) {
+		    double[] errors = accuracy(name, series, degree, min, max);
+		    System.out.printf("%s %s %s%s%d maxAbsError: %.3e meanAbsError: %.3e%n", name, range[1], series, label, degree, errors[0], errors[1]);
+		    if (!found && errors[0] <= budget) {
+			cheapest.append(String.format(" %s%s%d (%.3e)", series, label, degree, errors[0]));
+			found = true;
+		    }
+		}
+	    }
+	    if (budget >= 0) {
+		summary.append(String.format("Cheapest approximations of %s over %s range with max error <= %.1e:%s%n", name, range[1], budget,
+					     cheapest.length() == 0 ? " none" : cheapest.toString()));
+	    }
+	}
+	System.out.print("\n" + summary);
+    }
+}
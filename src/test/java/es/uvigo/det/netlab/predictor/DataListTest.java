@@ -0,0 +1,219 @@
+package es.uvigo.det.netlab.predictor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the timeslot lookups of data lists with uniform, non-uniform and unsorted timeslots against a
+ * linear scan of the data entries, and the energy harvested between timeslots against an integration of
+ * the data entries.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+class DataListTest
+{
+    private static final double DELTA = 1e-9;
+
+    @AfterEach
+    void restoreTraceType ()
+    {
+	EnergyPredictor.energyTraces = false;
+    }
+
+    /**
+     * Returns a data list with the given timeslots and random values.
+     */
+    private static DataList newDataList (int[] timeslots, long seed)
+    {
+	Random random = new Random(seed);
+	DataList dataList = new DataList("test.trace", null);
+	for (int timeslot : timeslots) {
+	    dataList.addEntry(40 * random.nextDouble(), timeslot);
+	}
+	return dataList;
+    }
+
+    /**
+     * Returns every step-th timeslot from step to numEntries * step.
+     */
+    private static int[] uniformTimeslots (int numEntries, int step)
+    {
+	int[] timeslots = new int[numEntries];
+	for (int i = 0; i < numEntries; i++) {
+	    timeslots[i] = (i + 1) * step;
+	}
+	return timeslots;
+    }
+
+    /**
+     * Returns increasing timeslots separated by random steps.
+     */
+    private static int[] nonUniformTimeslots (int numEntries, long seed)
+    {
+	Random random = new Random(seed);
+	int[] timeslots = new int[numEntries];
+	int timeslot = 0;
+	for (int i = 0; i < numEntries; i++) {
+	    timeslot += 1 + random.nextInt(600);
+	    timeslots[i] = timeslot;
+	}
+	return timeslots;
+    }
+
+    /**
+     * Returns the index of the data entry at the given timeslot by walking through the data entries.
+     */
+    private static int linearIndex (DataList dataList, int timeslot)
+    {
+	for (int i = 0; i < dataList.size(); i++) {
+	    int entryTimeslot = dataList.getTimeslot(i);
+	    if (entryTimeslot == timeslot) {
+		return i;
+	    } else if (entryTimeslot > timeslot) {
+		return i == 0 ? 0 : i - 1;
+	    }
+	}
+	return dataList.size() - 1;
+    }
+
+    /**
+     * Returns the data value at the given timeslot from the linear index.
+     */
+    private static double linearValue (DataList dataList, int timeslot)
+    {
+	int index = linearIndex(dataList, timeslot);
+	int entryTimeslot = dataList.getTimeslot(index);
+	if (entryTimeslot == timeslot || index == dataList.size() - 1) {
+	    return dataList.getValue(index);
+	}
+	double nextValue = dataList.getValue(index + 1);
+	return EnergyPredictor.energyTraces ?
+	    nextValue * (timeslot - entryTimeslot) / (dataList.getTimeslot(index + 1) - entryTimeslot) : nextValue;
+    }
+
+    private static void assertLookups (DataList dataList)
+    {
+	int lastTimeslot = dataList.getTimeslot(dataList.size() - 1);
+	for (int timeslot = 0; timeslot <= lastTimeslot + 100; timeslot++) {
+	    int index = linearIndex(dataList, timeslot);
+	    assertEquals(index, dataList.getIndexByTimeslot(timeslot), "index at timeslot " + timeslot);
+	    if (timeslot >= dataList.getTimeslot(0)) {
+		assertEquals(linearValue(dataList, timeslot), dataList.valueAt(timeslot), DELTA, "value at timeslot " + timeslot);
+		assertEquals(linearValue(dataList, timeslot), dataList.getEntryByTimeslot(timeslot).getValue(), DELTA,
+			     "entry at timeslot " + timeslot);
+	    }
+	}
+    }
+
+    @Test
+    void uniformLookups ()
+    {
+	DataList dataList = newDataList(uniformTimeslots(288, 300), 1);
+	assertLookups(dataList);
+	EnergyPredictor.energyTraces = true;
+	assertLookups(dataList);
+    }
+
+    @Test
+    void nonUniformLookups ()
+    {
+	DataList dataList = newDataList(nonUniformTimeslots(200, 2), 3);
+	assertLookups(dataList);
+	EnergyPredictor.energyTraces = true;
+	assertLookups(dataList);
+    }
+
+    @Test
+    void unsortedLookups ()
+    {
+	int[] timeslots = uniformTimeslots(100, 60);
+	int aux = timeslots[40];
+	timeslots[40] = timeslots[60];
+	timeslots[60] = aux;
+	assertLookups(newDataList(timeslots, 4));
+    }
+
+    @Test
+    void lookupsAfterGridChanges ()
+    {
+	// Uniform at first, then non-uniform after the last entry
+	int[] timeslots = uniformTimeslots(50, 300);
+	DataList dataList = newDataList(timeslots, 5);
+	assertLookups(dataList);
+	dataList.addEntry(10.0, timeslots[timeslots.length - 1] + 7);
+	assertLookups(dataList);
+    }
+
+    /**
+     * Returns the energy harvested between two timeslots by integrating every data entry, which covers the
+     * timeslots from the previous data entry (or timeslot 0) to its own.
+     */
+    private static double integratedEnergy (DataList dataList, int initialTimeslot, int finalTimeslot)
+    {
+	double energy = 0.0;
+	int prevTimeslot = 0;
+	for (int i = 0; i < dataList.size(); i++) {
+	    int entryTimeslot = dataList.getTimeslot(i);
+	    int overlap = Math.min(entryTimeslot, finalTimeslot) - Math.max(prevTimeslot, initialTimeslot);
+	    if (overlap > 0) {
+		energy += EnergyPredictor.energyTraces ?
+		    dataList.getValue(i) * overlap / (entryTimeslot - prevTimeslot) : dataList.getValue(i) * overlap;
+	    }
+	    prevTimeslot = entryTimeslot;
+	}
+	return energy;
+    }
+
+    private static void assertEnergies (DataList dataList, long seed)
+    {
+	Random random = new Random(seed);
+	int firstTimeslot = dataList.getTimeslot(0);
+	int lastTimeslot = dataList.getTimeslot(dataList.size() - 1);
+	for (int k = 0; k < 2000; k++) {
+	    int initialTimeslot = k % 10 == 0 ? 0 : firstTimeslot + random.nextInt(lastTimeslot - firstTimeslot + 1);
+	    int finalTimeslot = initialTimeslot + 1 + random.nextInt(lastTimeslot - initialTimeslot);
+	    if (finalTimeslot > lastTimeslot) {
+		continue;
+	    }
+	    double expected = integratedEnergy(dataList, initialTimeslot, finalTimeslot);
+	    assertEquals(expected, dataList.getEnergyHarvested(initialTimeslot, finalTimeslot, 1.0), DELTA * Math.max(1.0, expected),
+			 "energy from " + initialTimeslot + " to " + finalTimeslot);
+	}
+	double powerFactor = EnergyPredictor.energyTraces ? 1.0 : EnergyPredictor.SECONDS_PER_DAY / (double) lastTimeslot;
+	double total = integratedEnergy(dataList, 0, lastTimeslot) * powerFactor;
+	assertEquals(total, dataList.getEnergyHarvested(), DELTA * total);
+    }
+
+    @Test
+    void uniformEnergies ()
+    {
+	assertEnergies(newDataList(uniformTimeslots(288, 300), 6), 7);
+	// The cumulative energy depends on the trace type, so it is checked on a new data list
+	EnergyPredictor.energyTraces = true;
+	assertEnergies(newDataList(uniformTimeslots(288, 300), 6), 8);
+    }
+
+    @Test
+    void nonUniformEnergies ()
+    {
+	assertEnergies(newDataList(nonUniformTimeslots(200, 9), 10), 11);
+	EnergyPredictor.energyTraces = true;
+	assertEnergies(newDataList(nonUniformTimeslots(200, 9), 10), 12);
+    }
+
+    @Test
+    void energiesAfterAppend ()
+    {
+	// The cumulative energy is built by the first query and must be rebuilt after every append
+	int[] timeslots = uniformTimeslots(48, 1800);
+	DataList dataList = newDataList(timeslots, 13);
+	assertEnergies(dataList, 14);
+	dataList.addEntry(25.0, timeslots[timeslots.length - 1] + 1800);
+	assertEnergies(dataList, 15);
+    }
+}
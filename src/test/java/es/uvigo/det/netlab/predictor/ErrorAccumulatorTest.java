@@ -0,0 +1,73 @@
+package es.uvigo.det.netlab.predictor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that merged error accumulators give the error measures of their series together.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+class ErrorAccumulatorTest
+{
+    private static final double DELTA = 1e-12;
+
+    private static ErrorAccumulator series (double[] challengeValues, double[] predictionValues)
+    {
+	ErrorAccumulator accumulator = new ErrorAccumulator(1);
+	for (int i = 0; i < challengeValues.length; i++) {
+	    accumulator.add(challengeValues[i], predictionValues[i], 0);
+	}
+	return accumulator;
+    }
+
+    private static void assertMetricsEquals (ErrorMetrics expected, ErrorMetrics actual)
+    {
+	assertEquals(expected.getNumValues(), actual.getNumValues());
+	assertEquals(expected.getMae(), actual.getMae(), DELTA);
+	assertEquals(expected.getMape(), actual.getMape(), DELTA);
+	assertEquals(expected.getRmse(), actual.getRmse(), DELTA);
+	assertEquals(expected.getMase(), actual.getMase(), DELTA);
+	assertEquals(expected.getMadp(), actual.getMadp(), DELTA);
+    }
+
+    @Test
+    void mergeKeepsSeriesIndependent ()
+    {
+	ErrorAccumulator first = series(new double[] {1, 3}, new double[] {2, 2});
+	ErrorAccumulator second = series(new double[] {5, 4}, new double[] {5, 6});
+	ErrorMetrics metrics = new ErrorAccumulator(1).merge(first).merge(second).getMetrics();
+	assertEquals(4, metrics.getNumValues());
+	assertEquals(1.0, metrics.getMae(), DELTA);
+	// The change between the last value of the first series and the first one of the second is left out
+	assertEquals(4.0 * (4 - 2) / 4 / (2 + 1), metrics.getMase(), DELTA);
+    }
+
+    @Test
+    void addAfterMergeStartsNewSeries ()
+    {
+	ErrorAccumulator merged = new ErrorAccumulator(1).merge(series(new double[] {1, 3}, new double[] {2, 2}));
+	merged.add(10, 10, 0);
+	ErrorAccumulator expected = new ErrorAccumulator(1)
+	    .merge(series(new double[] {1, 3}, new double[] {2, 2}))
+	    .merge(series(new double[] {10}, new double[] {10}));
+	assertMetricsEquals(expected.getMetrics(), merged.getMetrics());
+	assertEquals(2.0 * (3 - 2) / 3 / 2, merged.getMetrics().getMase(), DELTA);
+    }
+
+    @Test
+    void mergeDoesNotDependOnGrouping ()
+    {
+	double[][] challengeValues = {{1, 3, 2}, {5, 4}, {0, 6, 6, 1}};
+	double[][] predictionValues = {{2, 2, 2}, {5, 6}, {1, 5, 7, 1}};
+	ErrorAccumulator left = new ErrorAccumulator(1);
+	for (int i = 0; i < challengeValues.length; i++) {
+	    left.merge(series(challengeValues[i], predictionValues[i]));
+	}
+	ErrorAccumulator right = series(challengeValues[0], predictionValues[0])
+	    .merge(series(challengeValues[1], predictionValues[1]).merge(series(challengeValues[2], predictionValues[2])));
+	assertMetricsEquals(left.getMetrics(), right.getMetrics());
+    }
+}
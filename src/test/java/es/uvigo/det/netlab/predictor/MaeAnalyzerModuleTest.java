@@ -0,0 +1,119 @@
+package es.uvigo.det.netlab.predictor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the incremental MAE analyzer, which slides the absolute error sums of the pool lists, selects
+ * the same similar data lists as the exact one.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+class MaeAnalyzerModuleTest
+{
+    private static final double DELTA = 1e-9;
+
+    private static final int SLOT_STEP = 300;
+
+    private static final int NUM_ENTRIES = 288;
+
+    private static final int POOL_SIZE = 8;
+
+    /**
+     * Returns a data list with a day of random values every SLOT_STEP timeslots.
+     */
+    private static DataList newDataList (String label, long seed)
+    {
+	Random random = new Random(seed);
+	DataList dataList = new DataList(label, null);
+	for (int i = 1; i <= NUM_ENTRIES; i++) {
+	    dataList.addEntry(40 * random.nextDouble(), i * SLOT_STEP);
+	}
+	return dataList;
+    }
+
+    /**
+     * Returns the exact and incremental analyzers with the same pool of random data lists.
+     */
+    private static MaeAnalyzerModule[] newAnalyzers (int combinedDataLists)
+    {
+	MaeAnalyzerModule[] analyzers = {new MaeAnalyzerModule(combinedDataLists, false), new MaeAnalyzerModule(combinedDataLists, true)};
+	for (int j = 0; j < POOL_SIZE; j++) {
+	    DataList poolList = newDataList("pool-" + j + ".trace", 100 + j);
+	    for (MaeAnalyzerModule analyzer : analyzers) {
+		analyzer.add(poolList);
+	    }
+	}
+	return analyzers;
+    }
+
+    private static void assertSameSimilarList (MaeAnalyzerModule[] analyzers, DataList dataList, int initSlot, int slotWindow)
+    {
+	DataList expected = analyzers[0].mostSimilarList(dataList, initSlot, slotWindow);
+	DataList actual = analyzers[1].mostSimilarList(dataList, initSlot, slotWindow);
+	String message = "timeslot " + initSlot + ", window " + slotWindow;
+	if (expected.getLabel().startsWith("pool-")) {
+	    assertSame(expected, actual, message);
+	    return;
+	}
+	assertEquals(expected.size(), actual.size(), message);
+	for (int i = 0; i < expected.size(); i++) {
+	    assertEquals(expected.getTimeslot(i), actual.getTimeslot(i), message);
+	    assertEquals(expected.getValue(i), actual.getValue(i), DELTA, message);
+	}
+    }
+
+    @Test
+    void slidingWindow ()
+    {
+	DataList dataList = newDataList("challenge.trace", 1);
+	for (int combinedDataLists : new int[] {1, 3}) {
+	    for (int slotWindow : new int[] {1, 4, 12}) {
+		MaeAnalyzerModule[] analyzers = newAnalyzers(combinedDataLists);
+		for (int initSlot = SLOT_STEP; initSlot <= NUM_ENTRIES * SLOT_STEP; initSlot += SLOT_STEP) {
+		    assertSameSimilarList(analyzers, dataList, initSlot, slotWindow);
+		}
+	    }
+	}
+    }
+
+    @Test
+    void jumpsAndChanges ()
+    {
+	DataList dataList = newDataList("challenge.trace", 2);
+	DataList otherList = newDataList("other.trace", 3);
+	MaeAnalyzerModule[] analyzers = newAnalyzers(3);
+	Random random = new Random(4);
+	for (int k = 0; k < 500; k++) {
+	    // Mostly forward slides, with jumps, backward moves, window changes and other data lists
+	    int initSlot = SLOT_STEP * (1 + random.nextInt(NUM_ENTRIES));
+	    int slotWindow = random.nextInt(10) == 0 ? 1 + random.nextInt(20) : 6;
+	    DataList list = random.nextInt(10) == 0 ? otherList : dataList;
+	    assertSameSimilarList(analyzers, list, initSlot, slotWindow);
+	    for (int slide = 1; slide <= 3 && initSlot + slide * SLOT_STEP <= NUM_ENTRIES * SLOT_STEP; slide++) {
+		assertSameSimilarList(analyzers, list, initSlot + slide * SLOT_STEP, slotWindow);
+	    }
+	}
+    }
+
+    @Test
+    void poolChanges ()
+    {
+	DataList dataList = newDataList("challenge.trace", 5);
+	MaeAnalyzerModule[] analyzers = newAnalyzers(1);
+	for (int initSlot = SLOT_STEP; initSlot <= NUM_ENTRIES * SLOT_STEP; initSlot += SLOT_STEP) {
+	    if (initSlot % (40 * SLOT_STEP) == 0 && analyzers[0].size() > 1) {
+		// The pool shrinks in the middle of the day
+		DataList removed = analyzers[0].dataPool.get(0);
+		analyzers[0].remove(removed);
+		analyzers[1].remove(removed);
+	    }
+	    assertSameSimilarList(analyzers, dataList, initSlot, 6);
+	}
+    }
+}
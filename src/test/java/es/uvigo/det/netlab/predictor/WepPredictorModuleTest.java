@@ -0,0 +1,124 @@
+package es.uvigo.det.netlab.predictor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the sliding window sums of the WEP predictor against the weighted averages of the window computed
+ * from scratch, in batch and streaming modes.
+ *
+ * @author Sergio Herreria-Alonso
+ * @version 1.0
+ */
+class WepPredictorModuleTest
+{
+    private static final double DELTA = 1e-9;
+
+    private static final int SLOT_STEP = 300;
+
+    private static final int[] SLOT_WINDOWS = {1, 3, 6, 20};
+
+    /**
+     * Returns a data list with a day of random values every SLOT_STEP timeslots.
+     */
+    private static DataList newDataList (int numEntries, long seed)
+    {
+	Random random = new Random(seed);
+	DataList dataList = new DataList("test.trace", null);
+	for (int i = 1; i <= numEntries; i++) {
+	    dataList.addEntry(40 * random.nextDouble(), i * SLOT_STEP);
+	}
+	return dataList;
+    }
+
+    /**
+     * Returns the average of the last values of the sequence (at most slotWindow of them) weighted by their
+     * position (1 for the oldest one).
+     */
+    private static double weightedAverage (List<Double> sequence, int slotWindow)
+    {
+	int size = Math.min(sequence.size(), slotWindow);
+	double sum = 0.0;
+	for (int k = 1; k <= size; k++) {
+	    sum += k * sequence.get(sequence.size() - size + k - 1);
+	}
+	return sum / (size * (size + 1) / 2);
+    }
+
+    /**
+     * Returns the prediction for the given past index from the given initial index: the data values up to the
+     * initial index (but the first one) are followed by the predicted ones.
+     */
+    private static double expectedPrediction (DataList dataList, int slotWindow, int initIndex, int pastIndex)
+    {
+	List<Double> sequence = new ArrayList<Double>();
+	for (int i = Math.max(1, initIndex - slotWindow + 1); i <= initIndex; i++) {
+	    sequence.add(dataList.getValue(i));
+	}
+	double prediction = 0.0;
+	for (int index = initIndex; index < pastIndex; index++) {
+	    prediction = weightedAverage(sequence, slotWindow);
+	    sequence.add(prediction);
+	}
+	return prediction;
+    }
+
+    private static void assertClose (double expected, double actual, String message)
+    {
+	assertEquals(expected, actual, DELTA * Math.max(1.0, Math.abs(expected)), message);
+    }
+
+    @Test
+    void batchPredictions ()
+    {
+	DataList dataList = newDataList(288, 1);
+	double[] predictions = new double[60];
+	for (int slotWindow : SLOT_WINDOWS) {
+	    WepPredictorModule predictor = new WepPredictorModule(dataList, new DataList("past.trace", null), slotWindow);
+	    for (int initIndex = 1; initIndex + predictions.length < dataList.size(); initIndex += 7) {
+		int initTimeslot = dataList.getTimeslot(initIndex);
+		int numPredictions = predictor.predictHorizons(initTimeslot, initTimeslot + predictions.length * SLOT_STEP, SLOT_STEP, predictions);
+		assertEquals(predictions.length, numPredictions);
+		for (int h = 0; h < numPredictions; h++) {
+		    assertClose(expectedPrediction(dataList, slotWindow, initIndex, initIndex + h + 1), predictions[h],
+				"window " + slotWindow + ", initial index " + initIndex + ", horizon " + (h + 1));
+		}
+		int pastIndex = initIndex + 2 * slotWindow + 1;
+		assertClose(expectedPrediction(dataList, slotWindow, initIndex, pastIndex),
+			    predictor.getPrediction(initTimeslot, dataList.getValue(initIndex), dataList.getTimeslot(pastIndex), 0.0),
+			    "window " + slotWindow + ", initial index " + initIndex);
+	    }
+	}
+    }
+
+    @Test
+    void streamingPredictions ()
+    {
+	DataList dataList = newDataList(288, 2);
+	double[] predictions = new double[12];
+	for (int slotWindow : SLOT_WINDOWS) {
+	    for (int stepTimeslot : new int[] {SLOT_STEP, 2 * SLOT_STEP}) {
+		DataList currentData = new DataList("streaming.trace", null);
+		WepPredictorModule predictor = new WepPredictorModule(currentData, new DataList("past.trace", null), slotWindow);
+		for (int index = 0; index < dataList.size(); index++) {
+		    predictor.onSample(dataList.getTimeslot(index), dataList.getValue(index));
+		    if (index < 1) {
+			// The first sample is never part of the window
+			continue;
+		    }
+		    predictor.predict(stepTimeslot, predictions);
+		    int slotsPerStep = stepTimeslot / SLOT_STEP;
+		    for (int h = 0; h < predictions.length; h++) {
+			assertClose(expectedPrediction(dataList, slotWindow, index, index + (h + 1) * slotsPerStep), predictions[h],
+				    "window " + slotWindow + ", step " + stepTimeslot + ", index " + index + ", horizon " + (h + 1));
+		    }
+		}
+	    }
+	}
+    }
+}